@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.benchmarks;
+
+import com.google.common.eventbus.EventBus;
+import com.hazelcast.core.HazelcastInstance;
+import com.openlattice.authorization.AclKey;
+import com.openlattice.authorization.AuthorizationManager;
+import com.openlattice.authorization.HazelcastAuthorizationService;
+import com.openlattice.authorization.Permission;
+import com.openlattice.authorization.Principal;
+import com.openlattice.authorization.PrincipalType;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Permission checks through {@link HazelcastAuthorizationService} for a user holding a varying number of roles, each
+ * granted read on a share of the securable objects.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+public class AuthorizationBenchmark {
+    private static final int OBJECTS = 1000;
+
+    @Param( { "1", "10", "100" } )
+    public int roles;
+
+    private HazelcastInstance    hazelcast;
+    private AuthorizationManager authorizations;
+    private List<AclKey>         aclKeys;
+    private Set<Principal>       principals;
+
+    @Setup( Level.Trial )
+    public void setUp() {
+        hazelcast = EmbeddedHazelcast.start( "authorization-benchmark" );
+        authorizations = new HazelcastAuthorizationService( hazelcast, new EventBus() );
+
+        List<Principal> grantees = new ArrayList<>( roles );
+        for ( int i = 0; i < roles; ++i ) {
+            grantees.add( new Principal( PrincipalType.ROLE, "role-" + i ) );
+        }
+
+        principals = new LinkedHashSet<>( grantees );
+        principals.add( new Principal( PrincipalType.USER, "user" ) );
+
+        aclKeys = new ArrayList<>( OBJECTS );
+        for ( int i = 0; i < OBJECTS; ++i ) {
+            AclKey aclKey = new AclKey( UUID.randomUUID(), UUID.randomUUID() );
+            authorizations.addPermission( aclKey, grantees.get( i % roles ), EnumSet.of( Permission.READ ) );
+            aclKeys.add( aclKey );
+        }
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown() {
+        hazelcast.shutdown();
+    }
+
+    @Benchmark
+    public boolean checkIfHasPermissions() {
+        return authorizations.checkIfHasPermissions( randomAclKey(), principals, EnumSet.of( Permission.READ ) );
+    }
+
+    @Benchmark
+    public boolean checkIfHasMissingPermissions() {
+        return authorizations.checkIfHasPermissions( randomAclKey(), principals, EnumSet.of( Permission.OWNER ) );
+    }
+
+    private AclKey randomAclKey() {
+        return aclKeys.get( ThreadLocalRandom.current().nextInt( aclKeys.size() ) );
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.benchmarks;
+
+import com.google.common.eventbus.EventBus;
+import com.hazelcast.core.HazelcastInstance;
+import com.openlattice.authorization.HazelcastAclKeyReservationService;
+import com.openlattice.authorization.HazelcastAuthorizationService;
+import com.openlattice.datastore.services.EdmManager;
+import com.openlattice.datastore.services.EdmService;
+import com.openlattice.edm.properties.PostgresTypeManager;
+import com.openlattice.edm.schemas.manager.HazelcastSchemaManager;
+import com.openlattice.edm.schemas.postgres.PostgresSchemaQueryService;
+import com.openlattice.edm.type.EntityType;
+import com.openlattice.edm.type.PropertyType;
+import com.openlattice.postgres.PostgresTable;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
+import org.apache.olingo.commons.api.edm.FullQualifiedName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Data model lookups through {@link EdmService}, set up the way {@code ConductorServicesPod} does, with the type and
+ * schema managers backed by an embedded Postgres. Types are created through the service before the trial, so the
+ * lookups read what the service itself wrote.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+public class EdmLookupBenchmark {
+    private static final String NAMESPACE = "benchmark";
+
+    @Param( { "100", "1000" } )
+    public int propertyTypeCount;
+
+    @Param( { "20" } )
+    public int propertiesPerEntityType;
+
+    private EmbeddedPostgres  postgres;
+    private HikariDataSource  dataSource;
+    private HazelcastInstance hazelcast;
+    private EdmManager        edm;
+    private List<UUID>        propertyTypeIds;
+    private List<UUID>        entityTypeIds;
+    private List<Set<UUID>>   entityTypeProperties;
+
+    @Setup( Level.Trial )
+    public void setUp() throws IOException, SQLException {
+        postgres = EmbeddedPostgres.start();
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setDataSource( postgres.getPostgresDatabase() );
+        dataSource = new HikariDataSource( hikariConfig );
+        try ( Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement() ) {
+            statement.execute( PostgresTable.PROPERTY_TYPES.createTableQuery() );
+            statement.execute( PostgresTable.ENTITY_TYPES.createTableQuery() );
+        }
+
+        hazelcast = EmbeddedHazelcast.start( "edm-lookup-benchmark" );
+        EventBus eventBus = new EventBus();
+        edm = new EdmService( hazelcast,
+                new HazelcastAclKeyReservationService( hazelcast ),
+                new HazelcastAuthorizationService( hazelcast, eventBus ),
+                new PostgresTypeManager( dataSource ),
+                new HazelcastSchemaManager( hazelcast, new PostgresSchemaQueryService( dataSource ) ) );
+
+        propertyTypeIds = new ArrayList<>( propertyTypeCount );
+        for ( int i = 0; i < propertyTypeCount; ++i ) {
+            PropertyType propertyType = new PropertyType( Optional.empty(),
+                    new FullQualifiedName( NAMESPACE, "property" + i ),
+                    "property " + i,
+                    Optional.empty(),
+                    Set.of(),
+                    EdmPrimitiveTypeKind.String );
+            edm.createPropertyTypeIfNotExists( propertyType );
+            propertyTypeIds.add( propertyType.getId() );
+        }
+
+        int entityTypeCount = Math.max( 1, propertyTypeCount / propertiesPerEntityType );
+        entityTypeIds = new ArrayList<>( entityTypeCount );
+        entityTypeProperties = new ArrayList<>( entityTypeCount );
+        for ( int i = 0; i < entityTypeCount; ++i ) {
+            LinkedHashSet<UUID> properties = new LinkedHashSet<>( randomPropertyTypeIds() );
+            LinkedHashSet<UUID> key = new LinkedHashSet<>( Set.of( properties.iterator().next() ) );
+            EntityType entityType = new EntityType( new FullQualifiedName( NAMESPACE, "entity" + i ),
+                    "entity " + i,
+                    "",
+                    Set.of(),
+                    key,
+                    properties,
+                    Optional.empty(),
+                    Optional.empty() );
+            edm.createEntityType( entityType );
+            entityTypeIds.add( entityType.getId() );
+            entityTypeProperties.add( properties );
+        }
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown() throws IOException {
+        hazelcast.shutdown();
+        dataSource.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public PropertyType getPropertyType() {
+        return edm.getPropertyType( propertyTypeIds.get( ThreadLocalRandom.current().nextInt( propertyTypeCount ) ) );
+    }
+
+    @Benchmark
+    public EntityType getEntityType() {
+        return edm.getEntityType( entityTypeIds.get( ThreadLocalRandom.current().nextInt( entityTypeIds.size() ) ) );
+    }
+
+    @Benchmark
+    public Map<UUID, PropertyType> getPropertyTypesAsMap() {
+        return edm.getPropertyTypesAsMap(
+                entityTypeProperties.get( ThreadLocalRandom.current().nextInt( entityTypeProperties.size() ) ) );
+    }
+
+    private Set<UUID> randomPropertyTypeIds() {
+        Set<UUID> ids = new LinkedHashSet<>( propertiesPerEntityType );
+        while ( ids.size() < Math.min( propertiesPerEntityType, propertyTypeCount ) ) {
+            ids.add( propertyTypeIds.get( ThreadLocalRandom.current().nextInt( propertyTypeCount ) ) );
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.benchmarks;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.config.MulticastConfig;
+import com.hazelcast.config.NetworkConfig;
+import com.hazelcast.config.SerializerConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.internal.serialization.SerializationService;
+import com.hazelcast.spi.impl.SerializationServiceSupport;
+import com.kryptnostic.rhizome.pods.hazelcast.SelfRegisteringStreamSerializer;
+import java.util.HashSet;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+
+/**
+ * Starts a single member Hazelcast cluster for benchmarks, set up like the {@code HazelcastTestHarness}, with the
+ * stream serializers that {@link com.openlattice.hazelcast.pods.SharedStreamSerializersPod} would register.
+ * <p>
+ * Serializers are found by scanning the classpath instead of starting the pod, so that serializers with injected
+ * dependencies don't require the rest of the application. Those are skipped if they can't be created without them.
+ */
+public final class EmbeddedHazelcast {
+    private static final Logger   logger             = LoggerFactory.getLogger( EmbeddedHazelcast.class );
+    private static final String[] SERIALIZER_PACKAGES = { "com.openlattice", "com.kryptnostic" };
+
+    private EmbeddedHazelcast() {
+    }
+
+    public static HazelcastInstance start( String name ) {
+        Config config = new Config( name );
+        config.setClusterName( name );
+        config.setNetworkConfig( new NetworkConfig().setPort( 5801 ).setPortAutoIncrement( true )
+                .setJoin( new JoinConfig().setMulticastConfig( new MulticastConfig().setEnabled( false ) ) ) );
+        registerStreamSerializers( config );
+
+        return Hazelcast.newHazelcastInstance( config );
+    }
+
+    public static SerializationService serializationService( HazelcastInstance hazelcastInstance ) {
+        return ( (SerializationServiceSupport) hazelcastInstance ).getSerializationService();
+    }
+
+    private static void registerStreamSerializers( Config config ) {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider( false );
+        scanner.addIncludeFilter( new AssignableTypeFilter( SelfRegisteringStreamSerializer.class ) );
+
+        Set<Class<?>> registered = new HashSet<>();
+        for ( String basePackage : SERIALIZER_PACKAGES ) {
+            for ( BeanDefinition candidate : scanner.findCandidateComponents( basePackage ) ) {
+                try {
+                    SelfRegisteringStreamSerializer<?> serializer = (SelfRegisteringStreamSerializer<?>) Class
+                            .forName( candidate.getBeanClassName() )
+                            .getDeclaredConstructor()
+                            .newInstance();
+
+                    if ( registered.add( serializer.getClazz() ) ) {
+                        config.getSerializationConfig().addSerializerConfig( new SerializerConfig()
+                                .setImplementation( serializer )
+                                .setTypeClass( serializer.getClazz() ) );
+                    }
+                } catch ( ReflectiveOperationException | RuntimeException e ) {
+                    logger.debug( "Skipping stream serializer {}.", candidate.getBeanClassName(), e );
+                }
+            }
+        }
+
+        logger.info( "Registered {} stream serializers.", registered.size() );
+    }
+}
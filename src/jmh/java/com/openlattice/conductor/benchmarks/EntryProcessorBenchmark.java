@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.benchmarks;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.EventBus;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import com.openlattice.authorization.AclKey;
+import com.openlattice.authorization.AclKeySet;
+import com.openlattice.authorization.AuthorizationManager;
+import com.openlattice.authorization.HazelcastAuthorizationService;
+import com.openlattice.authorization.Permission;
+import com.openlattice.authorization.Principal;
+import com.openlattice.authorization.PrincipalType;
+import com.openlattice.hazelcast.HazelcastMap;
+import com.openlattice.organizations.processors.NestedPrincipalMerger;
+import com.openlattice.organizations.processors.NestedPrincipalRemover;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Throughput of the entry processors that grant and revoke permissions and nest principals, on single keys and on
+ * batches of keys. Permissions go through {@link HazelcastAuthorizationService}, which runs the permission merger and
+ * remover, and principals are nested with the processors the principal service runs on the principal trees map.
+ * Every toggle grants and then revokes, so the maps stay the same size across iterations.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+public class EntryProcessorBenchmark {
+    private static final int BATCH_SIZE = 100;
+
+    @Param( { "10000" } )
+    public int entries;
+
+    private HazelcastInstance       hazelcast;
+    private AuthorizationManager    authorizations;
+    private IMap<AclKey, AclKeySet> principalTrees;
+    private List<AclKey>            aclKeys;
+    private List<Principal>         users;
+    private List<AclKey>            principals;
+    private AclKey                  role;
+
+    @Setup( Level.Trial )
+    public void setUp() {
+        hazelcast = EmbeddedHazelcast.start( "entry-processor-benchmark" );
+        authorizations = new HazelcastAuthorizationService( hazelcast, new EventBus() );
+        principalTrees = HazelcastMap.PRINCIPAL_TREES.getMap( hazelcast );
+        role = new AclKey( UUID.randomUUID(), UUID.randomUUID() );
+
+        aclKeys = new ArrayList<>( entries );
+        users = new ArrayList<>( entries );
+        principals = new ArrayList<>( entries );
+        for ( int i = 0; i < entries; ++i ) {
+            AclKey aclKey = new AclKey( UUID.randomUUID(), UUID.randomUUID() );
+            Principal user = new Principal( PrincipalType.USER, "user-" + i );
+            authorizations.addPermission( aclKey, user, EnumSet.of( Permission.READ ) );
+            aclKeys.add( aclKey );
+            users.add( user );
+
+            AclKey principal = new AclKey( UUID.randomUUID(), UUID.randomUUID() );
+            principalTrees.set( principal, new AclKeySet() );
+            principals.add( principal );
+        }
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown() {
+        hazelcast.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( 2 )
+    public void togglePermission() {
+        int i = randomIndex();
+        authorizations.addPermission( aclKeys.get( i ), users.get( i ), EnumSet.of( Permission.WRITE ) );
+        authorizations.removePermission( aclKeys.get( i ), users.get( i ), EnumSet.of( Permission.WRITE ) );
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( 2 )
+    public Object toggleNestedPrincipal() {
+        AclKey principal = principals.get( randomIndex() );
+        principalTrees.executeOnKey( principal, new NestedPrincipalMerger( ImmutableSet.of( role ) ) );
+        return principalTrees.executeOnKey( principal, new NestedPrincipalRemover( ImmutableSet.of( role ) ) );
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( 2 * BATCH_SIZE )
+    public Map<AclKey, ?> toggleNestedPrincipals() {
+        Set<AclKey> batch = new HashSet<>( BATCH_SIZE );
+        while ( batch.size() < BATCH_SIZE ) {
+            batch.add( principals.get( randomIndex() ) );
+        }
+        principalTrees.executeOnKeys( batch, new NestedPrincipalMerger( ImmutableSet.of( role ) ) );
+        return principalTrees.executeOnKeys( batch, new NestedPrincipalRemover( ImmutableSet.of( role ) ) );
+    }
+
+    private int randomIndex() {
+        return ThreadLocalRandom.current().nextInt( entries );
+    }
+}
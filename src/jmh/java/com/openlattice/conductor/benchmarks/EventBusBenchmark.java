@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.benchmarks;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.eventbus.Subscribe;
+import com.openlattice.conductor.events.EventBusConfiguration;
+import com.openlattice.conductor.events.OverflowPolicy;
+import com.openlattice.conductor.events.SubscriberQueueEventBus;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Cost of posting events to the {@link SubscriberQueueEventBus} from several request threads at once, with every post
+ * fanning out to all of the subscribers.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Threads( 4 )
+public class EventBusBenchmark {
+    private static final int KEYS = 1024;
+
+    @Param( { "4", "16" } )
+    public int subscribers;
+
+    private SubscriberQueueEventBus eventBus;
+    private UUID[]          keys;
+
+    @Setup( Level.Trial )
+    public void setUp() {
+        eventBus = new SubscriberQueueEventBus(
+                new EventBusConfiguration( true, 4096, OverflowPolicy.BLOCK, Map.of() ),
+                new MetricRegistry() );
+        for ( int i = 0; i < subscribers; ++i ) {
+            eventBus.register( new Subscriber() );
+        }
+
+        keys = new UUID[ KEYS ];
+        for ( int i = 0; i < KEYS; ++i ) {
+            keys[ i ] = UUID.randomUUID();
+        }
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown() {
+        eventBus.close();
+    }
+
+    @Benchmark
+    public void post() {
+        eventBus.post( new BenchmarkEvent( keys[ ThreadLocalRandom.current().nextInt( KEYS ) ] ) );
+    }
+
+    public static class BenchmarkEvent {
+        private final UUID entitySetId;
+
+        public BenchmarkEvent( UUID entitySetId ) {
+            this.entitySetId = entitySetId;
+        }
+
+        public UUID getEntitySetId() {
+            return entitySetId;
+        }
+    }
+
+    public static class Subscriber {
+        private final LongAdder received = new LongAdder();
+
+        @Subscribe
+        public void onEvent( BenchmarkEvent event ) {
+            received.increment();
+        }
+    }
+}
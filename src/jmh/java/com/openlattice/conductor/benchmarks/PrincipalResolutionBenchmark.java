@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.benchmarks;
+
+import com.google.common.eventbus.EventBus;
+import com.hazelcast.core.HazelcastInstance;
+import com.openlattice.authorization.HazelcastAclKeyReservationService;
+import com.openlattice.authorization.HazelcastAuthorizationService;
+import com.openlattice.authorization.Principal;
+import com.openlattice.authorization.PrincipalType;
+import com.openlattice.authorization.SecurablePrincipal;
+import com.openlattice.organization.roles.Role;
+import com.openlattice.organizations.roles.HazelcastPrincipalService;
+import com.openlattice.organizations.roles.SecurePrincipalsManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Principal resolution through {@link HazelcastPrincipalService} over a layered role tree, where every role is granted
+ * a few roles from the layer above it and every user is granted a few roles from the last layer. Resolving a user walks
+ * the principal trees up to the first layer, the way it does when a request is authorized.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+public class PrincipalResolutionBenchmark {
+    private static final int GRANTS_PER_PRINCIPAL = 3;
+    private static final int USERS                = 100;
+
+    @Param( { "100", "1000" } )
+    public int roleCount;
+
+    @Param( { "5" } )
+    public int depth;
+
+    private HazelcastInstance        hazelcast;
+    private SecurePrincipalsManager  principals;
+    private List<SecurablePrincipal> users;
+    private List<Role>               roles;
+
+    @Setup( Level.Trial )
+    public void setUp() {
+        hazelcast = EmbeddedHazelcast.start( "principal-resolution-benchmark" );
+        EventBus eventBus = new EventBus();
+        principals = new HazelcastPrincipalService( hazelcast,
+                new HazelcastAclKeyReservationService( hazelcast ),
+                new HazelcastAuthorizationService( hazelcast, eventBus ),
+                eventBus );
+
+        Principal owner = new Principal( PrincipalType.USER, "benchmark|owner" );
+        principals.createSecurablePrincipalIfNotExists( owner,
+                new SecurablePrincipal( Optional.empty(), owner, "owner", Optional.empty() ) );
+
+        UUID organizationId = UUID.randomUUID();
+        roles = new ArrayList<>( roleCount );
+        for ( int i = 0; i < roleCount; ++i ) {
+            Role role = new Role( Optional.empty(),
+                    organizationId,
+                    new Principal( PrincipalType.ROLE, organizationId + "|role-" + i ),
+                    "role-" + i,
+                    Optional.empty() );
+            principals.createSecurablePrincipalIfNotExists( owner, role );
+            roles.add( role );
+        }
+
+        int layerSize = Math.max( 1, roleCount / depth );
+        for ( int i = layerSize; i < roleCount; ++i ) {
+            int layerStart = ( i / layerSize - 1 ) * layerSize;
+            for ( int j = 0; j < GRANTS_PER_PRINCIPAL; ++j ) {
+                grant( roles.get( layerStart + ThreadLocalRandom.current().nextInt( layerSize ) ), roles.get( i ) );
+            }
+        }
+
+        int lastLayerStart = roleCount - layerSize;
+        users = new ArrayList<>( USERS );
+        for ( int i = 0; i < USERS; ++i ) {
+            Principal user = new Principal( PrincipalType.USER, "benchmark|user-" + i );
+            SecurablePrincipal securableUser = new SecurablePrincipal( Optional.empty(),
+                    user,
+                    user.getId(),
+                    Optional.empty() );
+            principals.createSecurablePrincipalIfNotExists( owner, securableUser );
+            for ( int j = 0; j < GRANTS_PER_PRINCIPAL; ++j ) {
+                grant( roles.get( lastLayerStart + ThreadLocalRandom.current().nextInt( layerSize ) ), securableUser );
+            }
+            users.add( securableUser );
+        }
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown() {
+        hazelcast.shutdown();
+    }
+
+    @Benchmark
+    public Collection<SecurablePrincipal> getAllPrincipals() {
+        return principals.getAllPrincipals( users.get( ThreadLocalRandom.current().nextInt( users.size() ) ) );
+    }
+
+    @Benchmark
+    public Collection<SecurablePrincipal> getParentPrincipalsOfPrincipal() {
+        return principals.getParentPrincipalsOfPrincipal(
+                roles.get( ThreadLocalRandom.current().nextInt( roles.size() ) ).getAclKey() );
+    }
+
+    private void grant( SecurablePrincipal granted, SecurablePrincipal holder ) {
+        principals.addPrincipalToPrincipal( granted.getAclKey(), holder.getAclKey() );
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.benchmarks;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.internal.serialization.Data;
+import com.hazelcast.internal.serialization.SerializationService;
+import com.openlattice.authorization.AceKey;
+import com.openlattice.authorization.AclKey;
+import com.openlattice.authorization.AclKeySet;
+import com.openlattice.authorization.Principal;
+import com.openlattice.authorization.PrincipalType;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Round trips through the stream serializers of the values most frequently stored in and read from Hazelcast.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+public class StreamSerializerBenchmark {
+    private static final int ACL_KEY_SET_SIZE = 100;
+
+    private HazelcastInstance    hazelcast;
+    private SerializationService serializationService;
+    private AclKey               aclKey;
+    private Principal            principal;
+    private AceKey               aceKey;
+    private AclKeySet            aclKeySet;
+
+    @Setup( Level.Trial )
+    public void setUp() {
+        hazelcast = EmbeddedHazelcast.start( "stream-serializer-benchmark" );
+        serializationService = EmbeddedHazelcast.serializationService( hazelcast );
+
+        aclKey = new AclKey( UUID.randomUUID(), UUID.randomUUID() );
+        principal = new Principal( PrincipalType.USER, "google-oauth2|" + UUID.randomUUID() );
+        aceKey = new AceKey( aclKey, principal );
+        aclKeySet = new AclKeySet();
+        for ( int i = 0; i < ACL_KEY_SET_SIZE; ++i ) {
+            aclKeySet.add( new AclKey( UUID.randomUUID(), UUID.randomUUID() ) );
+        }
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown() {
+        hazelcast.shutdown();
+    }
+
+    @Benchmark
+    public Object aclKey() {
+        return roundTrip( aclKey );
+    }
+
+    @Benchmark
+    public Object principal() {
+        return roundTrip( principal );
+    }
+
+    @Benchmark
+    public Object aceKey() {
+        return roundTrip( aceKey );
+    }
+
+    @Benchmark
+    public Object aclKeySet() {
+        return roundTrip( aclKeySet );
+    }
+
+    private Object roundTrip( Object value ) {
+        Data data = serializationService.toData( value );
+        return serializationService.toObject( data );
+    }
+}
@@ -32,6 +32,9 @@ import com.openlattice.hazelcast.pods.SharedStreamSerializersPod;
 import com.openlattice.jdbc.JdbcPod;
 import com.openlattice.mail.pods.MailServicePod;
 import com.openlattice.pods.ConductorEdmSyncPod;
+import com.openlattice.pods.ConductorEventBusPod;
+import com.openlattice.pods.ConductorMapStoresPod;
+import com.openlattice.pods.ConductorMetricsPod;
 import com.openlattice.pods.ConductorPostInitializationPod;
 import com.openlattice.pods.ConductorServicesPod;
 import com.openlattice.postgres.PostgresPod;
@@ -52,6 +55,9 @@ public class Conductor extends RhizomeApplicationServer {
             ConductorPostInitializationPod.class,
             ConductorServicesPod.class,
             ConductorEdmSyncPod.class,
+            ConductorEventBusPod.class,
+            ConductorMapStoresPod.class,
+            ConductorMetricsPod.class,
             ExternalDatabaseConnectionManagerPod.class,
             HazelcastQueuePod.class,
             JdbcPod.class,
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.blobs
+
+import com.fasterxml.jackson.annotation.JsonProperty
+import com.kryptnostic.rhizome.configuration.Configuration
+import com.kryptnostic.rhizome.configuration.ConfigurationKey
+import com.kryptnostic.rhizome.configuration.SimpleConfigurationKey
+import com.kryptnostic.rhizome.configuration.annotation.ReloadableConfiguration
+
+/**
+ * @param enabled Whether binary property values are cached locally.
+ * @param directory Where cached objects are stored. Cache files left over from a previous run are removed on startup,
+ * other files in it are left alone.
+ * @param maxBytes Upper bound on the size of the on-disk cache. Least recently used objects are evicted first.
+ * @param presignedUrlCacheMillis How long a presigned url is reused. Must be shorter than the time to live of the
+ * urls, configured in `datastore.yaml`, so that urls are never handed out shortly before they expire.
+ * @param maxPresignedUrls Maximum number of presigned urls kept in memory.
+ */
+@ReloadableConfiguration(uri = "blobcache.yaml")
+data class BlobCacheConfiguration(
+        @JsonProperty("enabled") val enabled: Boolean = false,
+        @JsonProperty("directory") val directory: String = "blobcache",
+        @JsonProperty("max-bytes") val maxBytes: Long = 1L shl 30,
+        @JsonProperty("presigned-url-cache-millis") val presignedUrlCacheMillis: Long = 240_000,
+        @JsonProperty("max-presigned-urls") val maxPresignedUrls: Long = 100_000
+) : Configuration {
+    companion object {
+        @JvmStatic
+        val configKey = SimpleConfigurationKey("blobcache.yaml")
+    }
+
+    override fun getKey(): ConfigurationKey {
+        return configKey
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.blobs
+
+import com.amazonaws.HttpMethod
+import com.codahale.metrics.Gauge
+import com.codahale.metrics.MetricRegistry
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import com.openlattice.data.storage.ByteBlobDataManager
+import java.net.URL
+import java.util.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Caches what reads through a [ByteBlobDataManager] return, so that repeated reads of the same media property don't
+ * go back to the blob store every time.
+ *
+ * Which cache is used depends on the delegate. The S3 backed data manager answers [getObjects] with presigned urls,
+ * which are reused until shortly before they expire. That saves signing every url again and hands out the same url
+ * for the same object, so browsers can cache the media. Data managers that return the object contents, such as the
+ * local one, have those cached on local disk instead.
+ *
+ * Writes and deletes go straight to the delegate and update or invalidate the cached copy.
+ */
+class CachingByteBlobDataManager(
+        private val delegate: ByteBlobDataManager,
+        blobCacheConfiguration: BlobCacheConfiguration,
+        metricRegistry: MetricRegistry
+) : ByteBlobDataManager {
+    private val objects = DiskBlobCache(blobCacheConfiguration.directory, blobCacheConfiguration.maxBytes)
+    private val presignedUrls: Cache<String, URL> = CacheBuilder.newBuilder()
+            .maximumSize(blobCacheConfiguration.maxPresignedUrls)
+            .expireAfterWrite(blobCacheConfiguration.presignedUrlCacheMillis, TimeUnit.MILLISECONDS)
+            .build()
+
+    private val objectHits = metricRegistry.meter(MetricRegistry.name(CachingByteBlobDataManager::class.java, "objects", "hits"))
+    private val objectMisses = metricRegistry.meter(MetricRegistry.name(CachingByteBlobDataManager::class.java, "objects", "misses"))
+    private val urlHits = metricRegistry.meter(MetricRegistry.name(CachingByteBlobDataManager::class.java, "urls", "hits"))
+    private val urlMisses = metricRegistry.meter(MetricRegistry.name(CachingByteBlobDataManager::class.java, "urls", "misses"))
+
+    init {
+        metricRegistry.register(MetricRegistry.name(CachingByteBlobDataManager::class.java, "objects", "bytes"),
+                Gauge<Long> { objects.getSizeInBytes() })
+    }
+
+    override fun putObject(s3Key: String, data: ByteArray, contentType: String) {
+        delegate.putObject(s3Key, data, contentType)
+        objects.put(s3Key, data)
+    }
+
+    override fun deleteObject(s3Key: String) {
+        delegate.deleteObject(s3Key)
+        invalidate(s3Key)
+    }
+
+    override fun deleteObjects(s3Keys: List<String>) {
+        delegate.deleteObjects(s3Keys)
+        s3Keys.forEach(this::invalidate)
+    }
+
+    override fun getObjects(objects: Collection<Any>): List<Any> {
+        val keys = objects.map { it.toString() }
+        val cached = keys.associateWith<String, Any?> { this.objects.get(it) ?: presignedUrls.getIfPresent(it) }
+        val misses = keys.filter { cached[it] == null }.distinct()
+
+        objectHits.mark((keys.size - misses.size).toLong())
+        objectMisses.mark(misses.size.toLong())
+
+        val loaded = if (misses.isEmpty()) {
+            mapOf()
+        } else {
+            misses.zip(delegate.getObjects(misses)).toMap()
+        }
+
+        loaded.forEach { (key, value) ->
+            when (value) {
+                is ByteArray -> this.objects.put(key, value)
+                is URL -> presignedUrls.put(key, value)
+            }
+        }
+
+        return keys.map { cached[it] ?: loaded.getValue(it) }
+    }
+
+    override fun getPresignedUrls(keys: Collection<Any>): List<URL> {
+        val stringKeys = keys.map { it.toString() }
+        val cached = presignedUrls.getAllPresent(stringKeys)
+        val misses = stringKeys.filterNot(cached::containsKey).distinct()
+
+        urlHits.mark((stringKeys.size - misses.size).toLong())
+        urlMisses.mark(misses.size.toLong())
+
+        val generated = if (misses.isEmpty()) {
+            mapOf()
+        } else {
+            misses.zip(delegate.getPresignedUrls(misses)).toMap()
+        }
+        presignedUrls.putAll(generated)
+
+        return stringKeys.map { cached[it] ?: generated.getValue(it) }
+    }
+
+    override fun getPresignedUrl(
+            key: Any,
+            expiration: Date,
+            httpMethod: HttpMethod,
+            contentType: Optional<String>
+    ): URL {
+        return delegate.getPresignedUrl(key, expiration, httpMethod, contentType)
+    }
+
+    private fun invalidate(s3Key: String) {
+        objects.invalidate(s3Key)
+        presignedUrls.invalidate(s3Key)
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.blobs
+
+import com.google.common.hash.Hashing
+import org.slf4j.LoggerFactory
+import java.io.IOException
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.StandardOpenOption
+
+private val logger = LoggerFactory.getLogger(DiskBlobCache::class.java)
+
+private const val SUFFIX = ".blob"
+
+/**
+ * A bounded, content addressed cache of objects on local disk.
+ *
+ * Objects are stored once per distinct content, identified by its SHA-256, so the same content stored under several
+ * keys only takes up space once. When the cache grows past [maxBytes] the least recently read keys are evicted and a
+ * file is removed once no key refers to it anymore. Reads go through a memory mapped view of the file.
+ *
+ * Files are written and deleted outside of the lock guarding the index, so a slow disk doesn't hold up readers. Every
+ * file gets a unique name, which means a file is never reused once it has been released and can be deleted safely.
+ *
+ * Only files created by this cache, ending in `.blob`, are removed when it starts, anything else in [directory] is
+ * left alone.
+ */
+class DiskBlobCache(directory: String, private val maxBytes: Long) {
+    private val root: Path = Paths.get(directory)
+
+    /**
+     * Keys in access order, mapped to the file holding their content.
+     */
+    private val index = LinkedHashMap<String, StoredBlob>(16, 0.75f, true)
+    private val blobsByHash = mutableMapOf<String, StoredBlob>()
+    private var totalBytes = 0L
+
+    init {
+        Files.createDirectories(root)
+        Files.newDirectoryStream(root, "*$SUFFIX").use { files -> files.forEach { Files.deleteIfExists(it) } }
+    }
+
+    fun get(key: String): ByteArray? {
+        val blob = synchronized(this) { index[key] } ?: return null
+
+        return try {
+            FileChannel.open(blob.file, StandardOpenOption.READ).use { channel ->
+                val mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                ByteArray(mapped.remaining()).also { mapped.get(it) }
+            }
+        } catch (ex: IOException) {
+            logger.warn("Unable to read cached object {}, evicting it.", key, ex)
+            delete(synchronized(this) { if (index[key] === blob) unlink(key) else listOf() })
+            null
+        }
+    }
+
+    fun put(key: String, data: ByteArray) {
+        if (data.size > maxBytes) {
+            return
+        }
+
+        val hash = Hashing.sha256().hashBytes(data).toString()
+        val linked = synchronized(this) {
+            blobsByHash[hash]?.let { blob -> link(key, blob) }
+        }
+        if (linked != null) {
+            delete(linked)
+            return
+        }
+
+        val file = Files.createTempFile(root, "$hash-", SUFFIX)
+        Files.write(file, data)
+
+        delete(synchronized(this) {
+            val existing = blobsByHash[hash]
+            if (existing == null) {
+                val blob = StoredBlob(hash, file, data.size.toLong())
+                blobsByHash[hash] = blob
+                totalBytes += blob.size
+                link(key, blob)
+            } else {
+                link(key, existing) + file
+            }
+        })
+    }
+
+    fun invalidate(key: String) {
+        delete(synchronized(this) { unlink(key) })
+    }
+
+    @Synchronized
+    fun getSizeInBytes(): Long {
+        return totalBytes
+    }
+
+    /**
+     * Points [key] at [blob] and evicts keys until the cache fits again. Must be called while holding the lock.
+     *
+     * @return Files that are no longer referenced and can be deleted once the lock is released.
+     */
+    private fun link(key: String, blob: StoredBlob): List<Path> {
+        val unreferenced = mutableListOf<Path>()
+        blob.references++
+        index.put(key, blob)?.let { previous -> release(previous)?.let(unreferenced::add) }
+
+        val iterator = index.entries.iterator()
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            val evicted = iterator.next().value
+            iterator.remove()
+            release(evicted)?.let(unreferenced::add)
+        }
+
+        return unreferenced
+    }
+
+    private fun unlink(key: String): List<Path> {
+        return listOfNotNull(index.remove(key)?.let(this::release))
+    }
+
+    /**
+     * @return The file of [blob] if this was its last reference.
+     */
+    private fun release(blob: StoredBlob): Path? {
+        if (--blob.references > 0) {
+            return null
+        }
+
+        blobsByHash.remove(blob.hash)
+        totalBytes -= blob.size
+        return blob.file
+    }
+
+    private fun delete(files: List<Path>) {
+        files.forEach { file ->
+            try {
+                Files.deleteIfExists(file)
+            } catch (ex: IOException) {
+                logger.warn("Unable to delete cached object file {}.", file, ex)
+            }
+        }
+    }
+
+    private class StoredBlob(val hash: String, val file: Path, val size: Long) {
+        var references = 0
+    }
+}
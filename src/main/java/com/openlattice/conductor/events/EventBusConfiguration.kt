@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.events
+
+import com.fasterxml.jackson.annotation.JsonProperty
+import com.kryptnostic.rhizome.configuration.Configuration
+import com.kryptnostic.rhizome.configuration.ConfigurationKey
+import com.kryptnostic.rhizome.configuration.SimpleConfigurationKey
+import com.kryptnostic.rhizome.configuration.annotation.ReloadableConfiguration
+
+/**
+ * What happens when an event is posted to a subscriber whose queue is full.
+ */
+enum class OverflowPolicy {
+    /**
+     * The posting thread waits for room in the queue.
+     */
+    BLOCK,
+
+    /**
+     * The event is dropped and counted.
+     */
+    DROP,
+
+    /**
+     * The event is dispatched to the subscriber on the posting thread. Subscribers still handle one event at a time, but
+     * may receive it ahead of events already queued for them.
+     */
+    CALLER_RUNS
+}
+
+/**
+ * @param async Whether events are dispatched on a dispatch thread per subscriber. When false, subscribers run on the
+ * posting thread.
+ * @param queueCapacity Maximum number of pending events per subscriber posted from outside of the dispatch threads.
+ * @param overflowPolicy What to do when a subscriber's queue is full, unless [subscriberOverflowPolicies] says
+ * otherwise.
+ * @param subscriberOverflowPolicies Overflow policies for specific subscribers, by fully qualified class name.
+ */
+@ReloadableConfiguration(uri = "eventbus.yaml")
+data class EventBusConfiguration(
+        @JsonProperty("async") val async: Boolean = true,
+        @JsonProperty("queue-capacity") val queueCapacity: Int = 4096,
+        @JsonProperty("overflow-policy") val overflowPolicy: OverflowPolicy = OverflowPolicy.BLOCK,
+        @JsonProperty("subscriber-overflow-policies")
+        val subscriberOverflowPolicies: Map<String, OverflowPolicy> = mapOf()
+) : Configuration {
+    companion object {
+        @JvmStatic
+        val configKey = SimpleConfigurationKey("eventbus.yaml")
+    }
+
+    fun overflowPolicyOf(subscriberClass: Class<*>): OverflowPolicy {
+        return subscriberOverflowPolicies[subscriberClass.name] ?: overflowPolicy
+    }
+
+    override fun getKey(): ConfigurationKey {
+        return configKey
+    }
+}
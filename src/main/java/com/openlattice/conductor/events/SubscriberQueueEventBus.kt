@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.events
+
+import com.codahale.metrics.Counter
+import com.codahale.metrics.Gauge
+import com.codahale.metrics.MetricRegistry
+import com.google.common.eventbus.EventBus
+import com.google.common.eventbus.Subscribe
+import com.google.common.eventbus.SubscriberExceptionContext
+import com.google.common.eventbus.SubscriberExceptionHandler
+import org.slf4j.LoggerFactory
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.Semaphore
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+private val logger = LoggerFactory.getLogger(SubscriberQueueEventBus::class.java)
+
+/**
+ * An [EventBus] that gives every subscriber its own queue and dispatch thread.
+ *
+ * A subscriber is only ever called from its own thread or, under [OverflowPolicy.CALLER_RUNS], through its own event
+ * bus. It therefore receives events one at a time, in the order they were queued for it, just like on a synchronous
+ * event bus. A slow subscriber only holds up its own queue. A posted event is queued for every subscriber of its type
+ * or one of its super types.
+ *
+ * Each subscriber has room for [EventBusConfiguration.queueCapacity] events posted from outside of the dispatch
+ * threads. When it fills up, the subscriber's [OverflowPolicy] decides whether the poster waits, the event is dropped,
+ * or the event is dispatched on the posting thread. Events posted by subscribers, from dispatch threads, are always
+ * queued without waiting, since a subscriber waiting on a full queue whose subscriber is itself waiting would never
+ * make progress.
+ *
+ * Dispatch time per event type, queue depth per subscriber and dropped events are published to the [MetricRegistry].
+ */
+class SubscriberQueueEventBus(
+        private val eventBusConfiguration: EventBusConfiguration,
+        private val metricRegistry: MetricRegistry
+) : EventBus("subscriber-queue"), AutoCloseable {
+    private val nextQueue = AtomicInteger()
+    private val queuesBySubscriber = IdentityHashMap<Any, SubscriberQueue>()
+    private val dropped: Counter = metricRegistry.counter(
+            MetricRegistry.name(SubscriberQueueEventBus::class.java, "dropped")
+    )
+
+    /**
+     * Replaced as a whole, under the lock on [queuesBySubscriber], whenever a subscriber is registered or unregistered.
+     * A post that started on an older snapshot finishes on it, but can't leave stale entries in a newer one.
+     */
+    @Volatile
+    private var subscribers = Subscribers(listOf())
+
+    override fun register(subscriber: Any) {
+        synchronized(queuesBySubscriber) {
+            require(!queuesBySubscriber.containsKey(subscriber)) { "Subscriber $subscriber is already registered." }
+            val queue = SubscriberQueue(subscriber, nextQueue.getAndIncrement())
+            queue.start()
+            queuesBySubscriber[subscriber] = queue
+            subscribers = Subscribers(queuesBySubscriber.values.toList())
+        }
+    }
+
+    override fun unregister(subscriber: Any) {
+        synchronized(queuesBySubscriber) {
+            val queue = requireNotNull(queuesBySubscriber.remove(subscriber)) {
+                "Subscriber $subscriber is not registered."
+            }
+            subscribers = Subscribers(queuesBySubscriber.values.toList())
+            queue.interrupt()
+        }
+    }
+
+    override fun post(event: Any) {
+        val reentrant = (Thread.currentThread() as? SubscriberQueue)?.eventBus === this
+        subscribers.queuesFor(event.javaClass).forEach { queue ->
+            if (reentrant) {
+                queue.queue.put(QueuedEvent(event, false))
+            } else {
+                post(queue, event)
+            }
+        }
+    }
+
+    override fun close() {
+        synchronized(queuesBySubscriber) {
+            queuesBySubscriber.values.forEach { it.interrupt() }
+            queuesBySubscriber.clear()
+            subscribers = Subscribers(listOf())
+        }
+    }
+
+    private fun post(queue: SubscriberQueue, event: Any) {
+        if (queue.capacity.tryAcquire()) {
+            queue.queue.put(QueuedEvent(event, true))
+            return
+        }
+
+        when (queue.overflowPolicy) {
+            OverflowPolicy.BLOCK -> {
+                // A queue unregistered while this post was under way stops taking events, so stop waiting on it too.
+                while (!queue.capacity.tryAcquire(1, TimeUnit.SECONDS)) {
+                    if (!queue.isAlive) {
+                        return
+                    }
+                }
+                queue.queue.put(QueuedEvent(event, true))
+            }
+            OverflowPolicy.DROP -> {
+                dropped.inc()
+                logger.warn("Dropped {} because the queue of {} is full.", event.javaClass.simpleName, queue.name)
+            }
+            OverflowPolicy.CALLER_RUNS -> queue.dispatch(event)
+        }
+    }
+
+    private class QueuedEvent(val event: Any, val holdsCapacity: Boolean)
+
+    /**
+     * The registered subscriber queues and, lazily, which of them subscribe to each posted event type.
+     */
+    private class Subscribers(private val queues: List<SubscriberQueue>) {
+        private val queuesByEventType = ConcurrentHashMap<Class<*>, List<SubscriberQueue>>()
+
+        fun queuesFor(eventClass: Class<*>): List<SubscriberQueue> {
+            return queuesByEventType.computeIfAbsent(eventClass) {
+                queues.filter { queue -> queue.eventTypes.any { it.isAssignableFrom(eventClass) } }
+            }
+        }
+    }
+
+    private inner class SubscriberQueue(
+            subscriber: Any,
+            index: Int
+    ) : Thread("event-bus-${subscriber.javaClass.simpleName}-$index") {
+        val queue = LinkedBlockingQueue<QueuedEvent>()
+        val capacity = Semaphore(eventBusConfiguration.queueCapacity)
+        val overflowPolicy = eventBusConfiguration.overflowPolicyOf(subscriber.javaClass)
+        val eventTypes = subscribedEventTypes(subscriber.javaClass)
+        val eventBus: SubscriberQueueEventBus get() = this@SubscriberQueueEventBus
+        private val subscriberBus = EventBus(EventBusExceptionHandler)
+        private val queueDepth = MetricRegistry.name(SubscriberQueueEventBus::class.java, name, "queue-depth")
+
+        init {
+            isDaemon = true
+            subscriberBus.register(subscriber)
+        }
+
+        override fun run() {
+            metricRegistry.register(queueDepth, Gauge<Int> { queue.size })
+            try {
+                while (!isInterrupted) {
+                    val queued = queue.take()
+                    if (queued.holdsCapacity) {
+                        capacity.release()
+                    }
+                    dispatch(queued.event)
+                }
+            } catch (ex: InterruptedException) {
+                logger.info("Event bus queue {} stopped with {} pending events.", name, queue.size)
+            } finally {
+                metricRegistry.remove(queueDepth)
+            }
+        }
+
+        fun dispatch(event: Any) {
+            metricRegistry.timer(MetricRegistry.name(SubscriberQueueEventBus::class.java, event.javaClass.simpleName))
+                    .time()
+                    .use { subscriberBus.post(event) }
+        }
+    }
+}
+
+/**
+ * @return The parameter types of every [Subscribe] method of [subscriberClass] and its super types, matching the
+ * methods the Guava event bus registers.
+ */
+private fun subscribedEventTypes(subscriberClass: Class<*>): Set<Class<*>> {
+    val types = mutableSetOf<Class<*>>()
+    val pending = ArrayDeque<Class<*>>()
+    pending.add(subscriberClass)
+
+    while (pending.isNotEmpty()) {
+        val type = pending.poll()
+        type.declaredMethods
+                .filter { it.isAnnotationPresent(Subscribe::class.java) && it.parameterCount == 1 }
+                .forEach { types.add(it.parameterTypes[0]) }
+        type.superclass?.let(pending::add)
+        pending.addAll(type.interfaces)
+    }
+
+    return types
+}
+
+private object EventBusExceptionHandler : SubscriberExceptionHandler {
+    override fun handleException(exception: Throwable, context: SubscriberExceptionContext) {
+        logger.error(
+                "Subscriber {}.{} failed to handle {}.",
+                context.subscriber.javaClass.name,
+                context.subscriberMethod.name,
+                context.event.javaClass.simpleName,
+                exception
+        )
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.executors
+
+import com.codahale.metrics.Gauge
+import com.codahale.metrics.MetricRegistry
+import com.google.common.util.concurrent.ListeningExecutorService
+import com.google.common.util.concurrent.MoreExecutors
+import com.google.common.util.concurrent.ThreadFactoryBuilder
+import org.slf4j.LoggerFactory
+import java.util.*
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.RejectedExecutionHandler
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
+private val logger = LoggerFactory.getLogger(ConductorExecutors::class.java)
+
+/**
+ * Holds a separate, bounded executor for each [ExecutorName], so that a stuck call in one subsystem can only exhaust
+ * its own threads.
+ *
+ * For every executor the number of active threads, queued tasks, rejected tasks and the time tasks spend waiting for a
+ * thread are published to the [MetricRegistry].
+ */
+class ConductorExecutors(
+        executorsConfiguration: ExecutorsConfiguration,
+        private val metricRegistry: MetricRegistry
+) : AutoCloseable {
+    private val executors = EnumMap<ExecutorName, ThreadPoolExecutor>(ExecutorName::class.java)
+    private val listeningExecutors = EnumMap<ExecutorName, ListeningExecutorService>(ExecutorName::class.java)
+
+    init {
+        ExecutorName.values().forEach { name ->
+            val executor = newExecutor(name, executorsConfiguration.getSettings(name))
+            executors[name] = executor
+            listeningExecutors[name] = MoreExecutors.listeningDecorator(executor)
+        }
+    }
+
+    fun get(name: ExecutorName): ListeningExecutorService {
+        return listeningExecutors.getValue(name)
+    }
+
+    override fun close() {
+        executors.values.forEach(ThreadPoolExecutor::shutdown)
+    }
+
+    private fun newExecutor(name: ExecutorName, settings: ExecutorSettings): ThreadPoolExecutor {
+        val metricName = name.name.toLowerCase()
+        val rejected = metricRegistry.counter(MetricRegistry.name(ConductorExecutors::class.java, metricName, "rejected"))
+        val queueWait = metricRegistry.timer(MetricRegistry.name(ConductorExecutors::class.java, metricName, "queue-wait"))
+        val rejectionPolicy = rejectionHandler(settings.rejectionPolicy)
+
+        val executor = object : ThreadPoolExecutor(
+                settings.poolSize,
+                settings.poolSize,
+                0L,
+                TimeUnit.MILLISECONDS,
+                ArrayBlockingQueue(settings.queueCapacity),
+                ThreadFactoryBuilder().setNameFormat("$metricName-%d").setDaemon(true).build(),
+                RejectedExecutionHandler { task, executor ->
+                    rejected.inc()
+                    logger.warn("Executor {} is saturated, applying {} policy.", name, settings.rejectionPolicy)
+                    rejectionPolicy.rejectedExecution(task, executor)
+                }
+        ) {
+            override fun execute(command: Runnable) {
+                val submittedAt = System.nanoTime()
+                super.execute {
+                    queueWait.update(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS)
+                    command.run()
+                }
+            }
+        }
+
+        metricRegistry.register(MetricRegistry.name(ConductorExecutors::class.java, metricName, "active"),
+                Gauge<Int> { executor.activeCount })
+        metricRegistry.register(MetricRegistry.name(ConductorExecutors::class.java, metricName, "queued"),
+                Gauge<Int> { executor.queue.size })
+
+        logger.info(
+                "Created {} executor with {} threads and a queue of {}.",
+                name,
+                settings.poolSize,
+                settings.queueCapacity
+        )
+        return executor
+    }
+
+    private fun rejectionHandler(policy: RejectionPolicy): RejectedExecutionHandler {
+        return when (policy) {
+            RejectionPolicy.ABORT -> ThreadPoolExecutor.AbortPolicy()
+            RejectionPolicy.CALLER_RUNS -> ThreadPoolExecutor.CallerRunsPolicy()
+            RejectionPolicy.DISCARD_OLDEST -> ThreadPoolExecutor.DiscardOldestPolicy()
+        }
+    }
+}
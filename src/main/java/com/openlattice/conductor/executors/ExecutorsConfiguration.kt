@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.executors
+
+import com.fasterxml.jackson.annotation.JsonProperty
+import com.kryptnostic.rhizome.configuration.Configuration
+import com.kryptnostic.rhizome.configuration.ConfigurationKey
+import com.kryptnostic.rhizome.configuration.SimpleConfigurationKey
+import com.kryptnostic.rhizome.configuration.annotation.ReloadableConfiguration
+
+/**
+ * Subsystems that get their own executor.
+ */
+enum class ExecutorName {
+    AUTH_SYNC,
+    SCHEDULING
+}
+
+/**
+ * What happens to work submitted to an executor whose queue is full.
+ */
+enum class RejectionPolicy {
+    /**
+     * The submission fails with a RejectedExecutionException.
+     */
+    ABORT,
+
+    /**
+     * The work runs on the submitting thread, slowing down the submitter.
+     */
+    CALLER_RUNS,
+
+    /**
+     * The oldest queued work is dropped to make room.
+     */
+    DISCARD_OLDEST
+}
+
+/**
+ * @param poolSize Number of threads.
+ * @param queueCapacity Maximum number of tasks waiting for a thread.
+ * @param rejectionPolicy What to do when the queue is full. Defaults to running work on the submitting thread, since
+ * most submitters don't expect a RejectedExecutionException.
+ */
+data class ExecutorSettings(
+        @JsonProperty("pool-size") val poolSize: Int = 2,
+        @JsonProperty("queue-capacity") val queueCapacity: Int = 1024,
+        @JsonProperty("rejection-policy") val rejectionPolicy: RejectionPolicy = RejectionPolicy.CALLER_RUNS
+)
+
+/**
+ * @param executors Settings by subsystem. Subsystems that aren't listed use the defaults of [ExecutorSettings].
+ */
+@ReloadableConfiguration(uri = "executors.yaml")
+data class ExecutorsConfiguration(
+        @JsonProperty("executors") val executors: Map<ExecutorName, ExecutorSettings> = mapOf()
+) : Configuration {
+    companion object {
+        @JvmStatic
+        val configKey = SimpleConfigurationKey("executors.yaml")
+    }
+
+    override fun getKey(): ConfigurationKey {
+        return configKey
+    }
+
+    fun getSettings(name: ExecutorName): ExecutorSettings {
+        return executors[name] ?: ExecutorSettings()
+    }
+}
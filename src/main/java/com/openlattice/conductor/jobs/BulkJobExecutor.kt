@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.jobs
+
+import com.codahale.metrics.MetricRegistry
+import com.hazelcast.core.HazelcastInstance
+import com.hazelcast.core.HazelcastInstanceAware
+import com.hazelcast.durableexecutor.DurableExecutorServiceFuture
+import java.io.Serializable
+import java.util.concurrent.Callable
+import java.util.concurrent.TimeUnit
+
+const val BULK_JOBS_EXECUTOR = "_conductor_jobs_bulk_"
+private const val USER_CONTEXT_KEY = "conductor.bulkJobExecutor"
+
+/**
+ * Submits long running bulk jobs, such as reindexing, to their own durable executor on the member that owns the
+ * provided key.
+ *
+ * Jobs of the [com.geekbeast.rhizome.jobs.HazelcastJobService] share the two threads of `_rhizome_job_service_`, so
+ * bulk work submitted there would hold up every other job in the cluster. [BULK_JOBS_EXECUTOR] is sized separately
+ * in `rhizome.yaml` and keeps bulk work off those threads.
+ *
+ * Queue wait (time from submission until the job starts) and run time are recorded per job type in the
+ * [MetricRegistry] of the member that runs the job.
+ */
+class BulkJobExecutor(
+        private val hazelcastInstance: HazelcastInstance,
+        private val metricRegistry: MetricRegistry
+) {
+    companion object {
+        @JvmStatic
+        fun getLocalExecutor(hazelcastInstance: HazelcastInstance): BulkJobExecutor {
+            return checkNotNull(hazelcastInstance.userContext[USER_CONTEXT_KEY] as BulkJobExecutor?) {
+                "Bulk job executor has not been initialized on this member."
+            }
+        }
+    }
+
+    init {
+        hazelcastInstance.userContext[USER_CONTEXT_KEY] = this
+    }
+
+    /**
+     * @param jobType The name metrics for this job are recorded under.
+     * @param key The job runs on the member that owns this key.
+     * @param job The work to run. It must be serializable.
+     */
+    fun <T> submitToKeyOwner(jobType: String, key: Any, job: Callable<T>): DurableExecutorServiceFuture<T> {
+        return hazelcastInstance
+                .getDurableExecutorService(BULK_JOBS_EXECUTOR)
+                .submitToKeyOwner(TimedJob(jobType, System.currentTimeMillis(), job), key)
+    }
+
+    internal fun recordQueueWait(jobType: String, millis: Long) {
+        metricRegistry.histogram(MetricRegistry.name(BulkJobExecutor::class.java, jobType, "queue-wait"))
+                .update(millis)
+    }
+
+    internal fun recordRunTime(jobType: String, millis: Long) {
+        metricRegistry.histogram(MetricRegistry.name(BulkJobExecutor::class.java, jobType, "run-time"))
+                .update(millis)
+    }
+}
+
+/**
+ * Wraps a job with the bookkeeping needed to measure how long it waited and ran.
+ */
+private class TimedJob<T>(
+        private val jobType: String,
+        private val submittedAt: Long,
+        private val job: Callable<T>
+) : Callable<T>, HazelcastInstanceAware, Serializable {
+    companion object {
+        private const val serialVersionUID = 1L
+    }
+
+    @Transient
+    private lateinit var hazelcastInstance: HazelcastInstance
+
+    override fun setHazelcastInstance(hazelcastInstance: HazelcastInstance) {
+        this.hazelcastInstance = hazelcastInstance
+        (job as? HazelcastInstanceAware)?.setHazelcastInstance(hazelcastInstance)
+    }
+
+    override fun call(): T {
+        val executor = BulkJobExecutor.getLocalExecutor(hazelcastInstance)
+        val startedAt = System.nanoTime()
+        executor.recordQueueWait(jobType, System.currentTimeMillis() - submittedAt)
+
+        try {
+            return job.call()
+        } finally {
+            executor.recordRunTime(jobType, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt))
+        }
+    }
+}
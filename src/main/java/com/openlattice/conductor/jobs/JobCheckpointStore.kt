@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.jobs
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.openlattice.postgres.PostgresColumnDefinition
+import com.openlattice.postgres.PostgresDatatype
+import com.openlattice.postgres.PostgresTableDefinition
+import com.openlattice.postgres.PostgresTables
+import com.zaxxer.hikari.HikariDataSource
+import java.util.stream.Stream
+
+private val JOB_TYPE = PostgresColumnDefinition("job_type", PostgresDatatype.TEXT).notNull()
+private val ID = PostgresColumnDefinition("id", PostgresDatatype.TEXT).notNull()
+private val CHECKPOINT = PostgresColumnDefinition("checkpoint", PostgresDatatype.JSONB).notNull()
+private val UPDATED_AT = PostgresColumnDefinition("updated_at", PostgresDatatype.TIMESTAMPTZ).notNull()
+
+@JvmField
+val JOB_CHECKPOINTS: PostgresTableDefinition = PostgresTableDefinition("conductor_job_checkpoints")
+        .addColumns(JOB_TYPE, ID, CHECKPOINT, UPDATED_AT)
+        .primaryKey(JOB_TYPE, ID)
+
+/**
+ * Registers the checkpoint table with the table manager, alongside the tables of the `PostgresTablesPod`.
+ */
+class JobCheckpointTables : PostgresTables {
+    override fun tables(): Stream<PostgresTableDefinition> {
+        return Stream.of(JOB_CHECKPOINTS)
+    }
+}
+
+/**
+ * Persists job progress cursors to Postgres so that a job resumed after a full cluster restart can continue from its
+ * last checkpoint. Hazelcast runs without persistence, so anything only kept in a map is lost on restart.
+ *
+ * Checkpoints are namespaced by job type and stored as json, so they can still be read after the classes holding
+ * them change, as long as their properties stay compatible.
+ */
+class JobCheckpointStore(private val hds: HikariDataSource, private val mapper: ObjectMapper) {
+
+    fun save(jobType: String, id: String, checkpoint: Any) {
+        hds.connection.use { connection ->
+            connection.prepareStatement(UPSERT_SQL).use { ps ->
+                ps.setString(1, jobType)
+                ps.setString(2, id)
+                ps.setString(3, mapper.writeValueAsString(checkpoint))
+                ps.executeUpdate()
+            }
+        }
+    }
+
+    fun <T> load(jobType: String, id: String, checkpointClass: Class<T>): T? {
+        return hds.connection.use { connection ->
+            connection.prepareStatement(SELECT_SQL).use { ps ->
+                ps.setString(1, jobType)
+                ps.setString(2, id)
+                ps.executeQuery().use { rs ->
+                    if (rs.next()) mapper.readValue(rs.getString(1), checkpointClass) else null
+                }
+            }
+        }
+    }
+
+    fun <T> loadAll(jobType: String, checkpointClass: Class<T>): Map<String, T> {
+        return hds.connection.use { connection ->
+            connection.prepareStatement(SELECT_ALL_SQL).use { ps ->
+                ps.setString(1, jobType)
+                ps.executeQuery().use { rs ->
+                    val checkpoints = mutableMapOf<String, T>()
+                    while (rs.next()) {
+                        checkpoints[rs.getString(1)] = mapper.readValue(rs.getString(2), checkpointClass)
+                    }
+                    checkpoints
+                }
+            }
+        }
+    }
+
+    fun delete(jobType: String, id: String) {
+        hds.connection.use { connection ->
+            connection.prepareStatement(DELETE_SQL).use { ps ->
+                ps.setString(1, jobType)
+                ps.setString(2, id)
+                ps.executeUpdate()
+            }
+        }
+    }
+}
+
+private val UPSERT_SQL = """
+    INSERT INTO ${JOB_CHECKPOINTS.name} (${JOB_TYPE.name}, ${ID.name}, ${CHECKPOINT.name}, ${UPDATED_AT.name})
+    VALUES (?, ?, ?::jsonb, now())
+    ON CONFLICT (${JOB_TYPE.name}, ${ID.name}) DO UPDATE
+    SET ${CHECKPOINT.name} = EXCLUDED.${CHECKPOINT.name}, ${UPDATED_AT.name} = now()
+""".trimIndent()
+
+private val SELECT_SQL = """
+    SELECT ${CHECKPOINT.name} FROM ${JOB_CHECKPOINTS.name} WHERE ${JOB_TYPE.name} = ? AND ${ID.name} = ?
+""".trimIndent()
+
+private val SELECT_ALL_SQL = """
+    SELECT ${ID.name}, ${CHECKPOINT.name} FROM ${JOB_CHECKPOINTS.name} WHERE ${JOB_TYPE.name} = ?
+""".trimIndent()
+
+private val DELETE_SQL = "DELETE FROM ${JOB_CHECKPOINTS.name} WHERE ${JOB_TYPE.name} = ? AND ${ID.name} = ?"
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.mapstores
+
+import com.codahale.metrics.Histogram
+import com.codahale.metrics.MetricRegistry
+import com.codahale.metrics.Timer
+import com.hazelcast.core.HazelcastInstance
+import com.hazelcast.map.MapLoader
+import com.hazelcast.map.MapLoaderLifecycleSupport
+import com.hazelcast.map.MapStore
+import com.hazelcast.spi.impl.SerializationServiceSupport
+import com.openlattice.conductor.snapshots.MapSnapshot
+import com.openlattice.conductor.snapshots.MapSnapshotStore
+import org.slf4j.LoggerFactory
+import java.util.*
+import java.util.concurrent.atomic.AtomicLong
+
+private val logger = LoggerFactory.getLogger(InstrumentedMapLoader::class.java)
+
+/**
+ * Rows loaded into a map and the wall clock time between the first and last batch.
+ */
+data class MapLoadStats(val mapName: String, val rows: Long, val millis: Long)
+
+/**
+ * Times every call made by Hazelcast into a map loader, keyed by map name, and keeps track of how many rows were
+ * loaded for the startup report.
+ *
+ * If a current snapshot of the map is available from the [MapSnapshotStore], the initial load is served from it and
+ * only keys missing from the snapshot are loaded through the delegate. The snapshot is dropped as soon as it has been
+ * used up or the map is written to.
+ */
+open class InstrumentedMapLoader<K, V>(
+        private val delegate: MapLoader<K, V>,
+        protected val mapName: String,
+        protected val metricRegistry: MetricRegistry,
+        private val mapSnapshotStore: MapSnapshotStore? = null
+) : MapLoader<K, V>, MapLoaderLifecycleSupport {
+    private val loadTimer = timer("load")
+    private val loadAllTimer = timer("loadAll")
+    private val loadAllKeysTimer = timer("loadAllKeys")
+    private val loadedEntries: Histogram = histogram("loadAll.size")
+    private val rowsLoaded = AtomicLong()
+    private val firstLoadStartedAt = AtomicLong()
+    private val lastLoadFinishedAt = AtomicLong()
+    private val restoredEntries = metricRegistry.counter(
+            MetricRegistry.name(InstrumentedMapLoader::class.java, mapName, "restored")
+    )
+
+    @Volatile
+    private var snapshot: MapSnapshot? = null
+
+    val loadStats: MapLoadStats
+        get() = MapLoadStats(
+                mapName,
+                rowsLoaded.get(),
+                (lastLoadFinishedAt.get() - firstLoadStartedAt.get()).coerceAtLeast(0)
+        )
+
+    override fun load(key: K): V? {
+        return loadTimer.time().use { delegate.load(key) }
+    }
+
+    override fun loadAll(keys: Collection<K>): Map<K, V> {
+        firstLoadStartedAt.compareAndSet(0, System.currentTimeMillis())
+        return loadAllTimer.time().use {
+            val loaded = loadAllFromSnapshot(keys)
+            loadedEntries.update(loaded.size)
+            rowsLoaded.addAndGet(loaded.size.toLong())
+            lastLoadFinishedAt.set(System.currentTimeMillis())
+            loaded
+        }
+    }
+
+    override fun loadAllKeys(): Iterable<K>? {
+        return loadAllKeysTimer.time().use {
+            readSnapshot { it.takeIf { it.complete }?.keys<K>() } ?: delegate.loadAllKeys()
+        }
+    }
+
+    override fun init(hazelcastInstance: HazelcastInstance, properties: Properties, mapName: String) {
+        (delegate as? MapLoaderLifecycleSupport)?.init(hazelcastInstance, properties, mapName)
+
+        if (mapSnapshotStore != null && hazelcastInstance is SerializationServiceSupport) {
+            try {
+                snapshot = mapSnapshotStore.open(mapName, hazelcastInstance.serializationService)
+            } catch (ex: Exception) {
+                logger.warn("Unable to open snapshot of map {}, loading it from the map loader.", mapName, ex)
+            }
+        }
+    }
+
+    override fun destroy() {
+        releaseSnapshot()
+        (delegate as? MapLoaderLifecycleSupport)?.destroy()
+    }
+
+    protected fun releaseSnapshot() {
+        snapshot?.clear()
+        snapshot = null
+    }
+
+    private fun loadAllFromSnapshot(keys: Collection<K>): Map<K, V> {
+        val currentSnapshot = snapshot ?: return delegate.loadAll(keys)
+
+        val restored = readSnapshot { it.getAll<K, V>(keys) } ?: mapOf()
+        restoredEntries.inc(restored.size.toLong())
+        if (currentSnapshot.isExhausted) {
+            releaseSnapshot()
+        }
+
+        return if (restored.size == keys.size) {
+            restored
+        } else {
+            restored + delegate.loadAll(keys.filterNot(restored::containsKey))
+        }
+    }
+
+    /**
+     * Reads from the current snapshot. If it can't be deserialized, for example because a class changed in a way the
+     * build fingerprint doesn't catch, the snapshot is dropped and null is returned so the caller falls back to the
+     * delegate.
+     */
+    private fun <T> readSnapshot(read: (MapSnapshot) -> T?): T? {
+        val currentSnapshot = snapshot ?: return null
+        return try {
+            read(currentSnapshot)
+        } catch (ex: Exception) {
+            logger.warn("Unable to read snapshot of map {}, loading it from the map loader instead.", mapName, ex)
+            releaseSnapshot()
+            null
+        }
+    }
+
+    protected fun timer(operation: String): Timer {
+        return metricRegistry.timer(MetricRegistry.name(InstrumentedMapLoader::class.java, mapName, operation))
+    }
+
+    protected fun histogram(operation: String): Histogram {
+        return metricRegistry.histogram(MetricRegistry.name(InstrumentedMapLoader::class.java, mapName, operation))
+    }
+}
+
+/**
+ * Times every call made by Hazelcast into a map store and, for write-behind maps, retries failed batch writes before
+ * handing the failure back to Hazelcast.
+ */
+class InstrumentedMapStore<K, V>(
+        private val delegate: MapStore<K, V>,
+        mapName: String,
+        metricRegistry: MetricRegistry,
+        private val writeBehindSettings: WriteBehindSettings?,
+        mapSnapshotStore: MapSnapshotStore? = null
+) : InstrumentedMapLoader<K, V>(delegate, mapName, metricRegistry, mapSnapshotStore), MapStore<K, V> {
+    private val storeTimer = timer("store")
+    private val storeAllTimer = timer("storeAll")
+    private val deleteTimer = timer("delete")
+    private val deleteAllTimer = timer("deleteAll")
+    private val storedEntries = histogram("storeAll.size")
+    private val retries = metricRegistry.counter(
+            MetricRegistry.name(InstrumentedMapLoader::class.java, mapName, "retries")
+    )
+
+    override fun store(key: K, value: V) {
+        releaseSnapshot()
+        storeTimer.time().use { delegate.store(key, value) }
+    }
+
+    override fun storeAll(map: Map<K, V>) {
+        releaseSnapshot()
+        storedEntries.update(map.size)
+        storeAllTimer.time().use { withRetries("storeAll") { delegate.storeAll(map) } }
+    }
+
+    override fun delete(key: K) {
+        releaseSnapshot()
+        deleteTimer.time().use { delegate.delete(key) }
+    }
+
+    override fun deleteAll(keys: Collection<K>) {
+        releaseSnapshot()
+        deleteAllTimer.time().use { withRetries("deleteAll") { delegate.deleteAll(keys) } }
+    }
+
+    private fun withRetries(operation: String, write: () -> Unit) {
+        val maxRetries = writeBehindSettings?.maxRetries ?: 0
+        var attempt = 0
+
+        while (true) {
+            try {
+                write()
+                return
+            } catch (ex: Exception) {
+                if (attempt >= maxRetries) {
+                    throw ex
+                }
+                attempt++
+                retries.inc()
+                logger.warn("Retrying {} on map {} (attempt {} of {}).", operation, mapName, attempt, maxRetries, ex)
+                Thread.sleep(writeBehindSettings!!.retryBackoffMillis * attempt)
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.mapstores
+
+import com.codahale.metrics.Gauge
+import com.codahale.metrics.MetricRegistry
+import com.hazelcast.config.Config
+import com.hazelcast.config.MapConfig
+import com.hazelcast.config.MapStoreConfig
+import com.hazelcast.core.HazelcastInstance
+import com.hazelcast.map.MapLoader
+import com.hazelcast.map.MapStore
+import com.openlattice.conductor.snapshots.MapSnapshotStore
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.config.BeanPostProcessor
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+
+private val logger = LoggerFactory.getLogger(MapStoreConfigurer::class.java)
+
+private const val LOAD_CHUNK_SIZE_PROPERTY = "hazelcast.map.load.chunk.size"
+
+/**
+ * Adjusts the map store configuration registered by the map store pods before the Hazelcast instance is created.
+ *
+ * Every map loader and map store is wrapped so that calls into it are timed per map. Maps with
+ * [WriteBehindSettings] are switched from write-through to write-behind, which lets Hazelcast coalesce updates to the
+ * same key and flush them in batches through storeAll. Once the instance is up, the dirty entry backlog of each
+ * write-behind map is published as a gauge.
+ *
+ * Maps with [MapLoadingSettings] get the initial load mode matching their [MapLoadingStrategy]. Eager maps are all
+ * loaded concurrently as soon as the instance is up, instead of one after another on first use, and warm up maps are
+ * left to [MapWarmUpInitializationTask]. Keys are loaded by each partition owner in chunks of
+ * [MapStoresConfiguration.loadChunkSize].
+ *
+ * Maps listed in `snapshots.yaml` are restored from their local snapshots when those are still current.
+ */
+class MapStoreConfigurer(
+        val mapStoresConfiguration: MapStoresConfiguration,
+        private val metricRegistry: MetricRegistry,
+        private val mapSnapshotStore: MapSnapshotStore
+) : BeanPostProcessor {
+    private val loaders = ConcurrentHashMap<String, InstrumentedMapLoader<*, *>>()
+
+    override fun postProcessBeforeInitialization(bean: Any, beanName: String): Any {
+        if (bean is Config) {
+            mapStoresConfiguration.loadChunkSize?.let { bean.setProperty(LOAD_CHUNK_SIZE_PROPERTY, it.toString()) }
+            bean.mapConfigs.values.forEach(this::configure)
+        }
+        return bean
+    }
+
+    override fun postProcessAfterInitialization(bean: Any, beanName: String): Any {
+        if (bean is HazelcastInstance) {
+            registerBacklogGauges(bean)
+            loadEagerMaps(bean)
+        }
+        return bean
+    }
+
+    /**
+     * @return Rows loaded and time spent loading for every map with a map loader, largest first.
+     */
+    fun getLoadReport(): List<MapLoadStats> {
+        return loaders.values.map { it.loadStats }.sortedByDescending { it.rows }
+    }
+
+    fun logLoadReport() {
+        getLoadReport().forEach { stats ->
+            logger.info("Map {} loaded {} rows in {} ms.", stats.mapName, stats.rows, stats.millis)
+        }
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun configure(mapConfig: MapConfig) {
+        val mapStoreConfig = mapConfig.mapStoreConfig
+        if (!mapStoreConfig.isEnabled) {
+            return
+        }
+
+        val mapName = mapConfig.name
+        val writeBehindSettings = mapStoresConfiguration.getWriteBehindSettings(mapName)
+        val snapshots = if (mapSnapshotStore.isSnapshotted(mapName)) mapSnapshotStore else null
+
+        val instrumented = when (val implementation = mapStoreConfig.implementation) {
+            is MapStore<*, *> -> InstrumentedMapStore(
+                    implementation as MapStore<Any, Any>,
+                    mapName,
+                    metricRegistry,
+                    writeBehindSettings,
+                    snapshots
+            )
+            is MapLoader<*, *> -> InstrumentedMapLoader(
+                    implementation as MapLoader<Any, Any>,
+                    mapName,
+                    metricRegistry,
+                    snapshots
+            )
+            else -> null
+        }
+
+        if (instrumented != null) {
+            mapStoreConfig.implementation = instrumented
+            loaders[mapName] = instrumented
+        }
+
+        mapStoresConfiguration.loading[mapName]?.let { settings ->
+            mapStoreConfig.initialLoadMode = when (settings.strategy) {
+                MapLoadingStrategy.EAGER -> MapStoreConfig.InitialLoadMode.EAGER
+                MapLoadingStrategy.LAZY, MapLoadingStrategy.WARM_UP -> MapStoreConfig.InitialLoadMode.LAZY
+            }
+        }
+
+        if (writeBehindSettings != null && mapStoreConfig.implementation is MapStore<*, *>) {
+            mapStoreConfig
+                    .setWriteDelaySeconds(writeBehindSettings.writeDelaySeconds)
+                    .setWriteBatchSize(writeBehindSettings.writeBatchSize)
+                    .setWriteCoalescing(writeBehindSettings.writeCoalescing)
+            logger.info(
+                    "Map {} will be written behind every {} seconds in batches of up to {}.",
+                    mapName,
+                    writeBehindSettings.writeDelaySeconds,
+                    writeBehindSettings.writeBatchSize
+            )
+        }
+    }
+
+    private fun loadEagerMaps(hazelcastInstance: HazelcastInstance) {
+        val eagerMaps = mapStoresConfiguration.loading
+                .filterValues { it.strategy == MapLoadingStrategy.EAGER }
+                .keys
+
+        if (eagerMaps.isEmpty()) {
+            return
+        }
+
+        val start = System.currentTimeMillis()
+        CompletableFuture.allOf(*eagerMaps.map { mapName ->
+            CompletableFuture.runAsync { hazelcastInstance.getMap<Any, Any>(mapName).size }
+        }.toTypedArray()).join()
+
+        logger.info("Loaded {} eager maps in {} ms.", eagerMaps.size, System.currentTimeMillis() - start)
+    }
+
+    private fun registerBacklogGauges(hazelcastInstance: HazelcastInstance) {
+        mapStoresConfiguration.writeBehind.keys
+                .filter { mapStoresConfiguration.getWriteBehindSettings(it) != null }
+                .forEach { mapName ->
+                    metricRegistry.register(
+                            MetricRegistry.name(MapStoreConfigurer::class.java, mapName, "dirty-entries"),
+                            Gauge<Long> { hazelcastInstance.getMap<Any, Any>(mapName).localMapStats.dirtyEntryCount }
+                    )
+                }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.mapstores
+
+import com.fasterxml.jackson.annotation.JsonProperty
+import com.kryptnostic.rhizome.configuration.Configuration
+import com.kryptnostic.rhizome.configuration.ConfigurationKey
+import com.kryptnostic.rhizome.configuration.SimpleConfigurationKey
+import com.kryptnostic.rhizome.configuration.annotation.ReloadableConfiguration
+
+/**
+ * Write-behind settings for a single map.
+ *
+ * @param writeDelaySeconds How long dirty entries are held before being flushed.
+ * @param writeBatchSize The maximum number of entries passed to a single storeAll call.
+ * @param writeCoalescing Whether repeated updates to the same key are collapsed into a single write.
+ * @param maxRetries How many times a failed batch is retried before the failure is handed back to Hazelcast, which
+ * keeps the entries queued for the next flush.
+ * @param retryBackoffMillis Base delay between retries, multiplied by the attempt number.
+ */
+data class WriteBehindSettings(
+        @JsonProperty("write-delay-seconds") val writeDelaySeconds: Int = 5,
+        @JsonProperty("write-batch-size") val writeBatchSize: Int = 1000,
+        @JsonProperty("write-coalescing") val writeCoalescing: Boolean = true,
+        @JsonProperty("max-retries") val maxRetries: Int = 3,
+        @JsonProperty("retry-backoff-millis") val retryBackoffMillis: Long = 500
+)
+
+/**
+ * How a map is populated from its map loader when the cluster starts.
+ */
+enum class MapLoadingStrategy {
+    /**
+     * Loaded as soon as the Hazelcast instance is up, in parallel with the other eager maps, before the rest of the
+     * application starts.
+     */
+    EAGER,
+
+    /**
+     * Loaded the first time the map is accessed.
+     */
+    LAZY,
+
+    /**
+     * Loaded in the background after startup, in order of priority, so that the member becomes available sooner.
+     */
+    WARM_UP
+}
+
+/**
+ * @param strategy How the map is loaded.
+ * @param priority Order in which [MapLoadingStrategy.WARM_UP] maps are loaded, lowest first.
+ */
+data class MapLoadingSettings(
+        @JsonProperty("strategy") val strategy: MapLoadingStrategy = MapLoadingStrategy.LAZY,
+        @JsonProperty("priority") val priority: Int = 0
+)
+
+/**
+ * @param writeBehind Maps that should be flushed to Postgres in batches, keyed by map name.
+ * @param writeThrough Maps that must always be written through, regardless of what is configured in [writeBehind].
+ * @param loading Loading strategy by map name. Maps that are not listed keep the load mode of their map store.
+ * @param loadChunkSize Number of keys each partition owner loads per batch while a map is being loaded.
+ */
+@ReloadableConfiguration(uri = "mapstores.yaml")
+data class MapStoresConfiguration(
+        @JsonProperty("write-behind") val writeBehind: Map<String, WriteBehindSettings> = mapOf(),
+        @JsonProperty("write-through") val writeThrough: Set<String> = setOf(),
+        @JsonProperty("loading") val loading: Map<String, MapLoadingSettings> = mapOf(),
+        @JsonProperty("load-chunk-size") val loadChunkSize: Int? = null
+) : Configuration {
+    companion object {
+        @JvmStatic
+        val configKey = SimpleConfigurationKey("mapstores.yaml")
+    }
+
+    override fun getKey(): ConfigurationKey {
+        return configKey
+    }
+
+    fun getWriteBehindSettings(mapName: String): WriteBehindSettings? {
+        return if (writeThrough.contains(mapName)) null else writeBehind[mapName]
+    }
+}
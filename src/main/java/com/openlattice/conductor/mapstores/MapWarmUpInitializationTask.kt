@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.mapstores
+
+import com.hazelcast.core.HazelcastInstance
+import com.openlattice.tasks.HazelcastInitializationTask
+import com.openlattice.tasks.HazelcastTaskDependencies
+import com.openlattice.tasks.PostConstructInitializerTaskDependencies.PostConstructInitializerTask
+import org.slf4j.LoggerFactory
+import kotlin.concurrent.thread
+
+private val logger = LoggerFactory.getLogger(MapWarmUpInitializationTask::class.java)
+
+data class MapWarmUpDependencies(
+        val hazelcastInstance: HazelcastInstance,
+        val mapStoreConfigurer: MapStoreConfigurer
+) : HazelcastTaskDependencies
+
+/**
+ * Loads [MapLoadingStrategy.WARM_UP] maps in the background, lowest priority first, and then logs how many rows were
+ * loaded into each map and how long it took.
+ */
+class MapWarmUpInitializationTask : HazelcastInitializationTask<MapWarmUpDependencies> {
+    override fun getInitialDelay(): Long {
+        return 0
+    }
+
+    override fun initialize(dependencies: MapWarmUpDependencies) {
+        val warmUpMaps = dependencies.mapStoreConfigurer.mapStoresConfiguration.loading
+                .filterValues { it.strategy == MapLoadingStrategy.WARM_UP }
+                .toList()
+                .sortedBy { (_, settings) -> settings.priority }
+                .map { (mapName, _) -> mapName }
+
+        thread(name = "map-warm-up", isDaemon = true) {
+            warmUpMaps.forEach { mapName ->
+                try {
+                    val start = System.currentTimeMillis()
+                    val size = dependencies.hazelcastInstance.getMap<Any, Any>(mapName).size
+                    logger.info("Warmed up map {} with {} entries in {} ms.", mapName, size,
+                            System.currentTimeMillis() - start)
+                } catch (ex: Exception) {
+                    logger.error("Unable to warm up map {}.", mapName, ex)
+                }
+            }
+            dependencies.mapStoreConfigurer.logLoadReport()
+        }
+    }
+
+    override fun after(): Set<Class<out HazelcastInitializationTask<*>>> {
+        return setOf(PostConstructInitializerTask::class.java)
+    }
+
+    override fun getName(): String {
+        return "map_warm_up"
+    }
+
+    override fun getDependenciesClass(): Class<out MapWarmUpDependencies> {
+        return MapWarmUpDependencies::class.java
+    }
+}
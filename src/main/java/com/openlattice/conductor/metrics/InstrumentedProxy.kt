@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.metrics
+
+import com.codahale.metrics.Meter
+import com.codahale.metrics.MetricRegistry
+import com.codahale.metrics.Timer
+import java.lang.reflect.InvocationHandler
+import java.lang.reflect.InvocationTargetException
+import java.lang.reflect.Method
+import java.lang.reflect.Proxy
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ThreadLocalRandom
+
+/**
+ * Counts every call made through an interface and times a sample of them, per method.
+ *
+ * Counting only marks a meter, so calls that aren't sampled cost next to nothing. Failures are counted separately and
+ * rethrown unchanged.
+ */
+class InstrumentedProxy<T : Any> private constructor(
+        private val target: T,
+        private val metricPrefix: String,
+        private val metricRegistry: MetricRegistry,
+        private val sampleRate: Double
+) : InvocationHandler {
+    companion object {
+        @JvmStatic
+        fun <T : Any> wrap(
+                type: Class<T>,
+                target: T,
+                metricPrefix: String,
+                metricRegistry: MetricRegistry,
+                sampleRate: Double
+        ): T {
+            return type.cast(Proxy.newProxyInstance(
+                    type.classLoader,
+                    arrayOf(type),
+                    InstrumentedProxy(target, metricPrefix, metricRegistry, sampleRate)
+            ))
+        }
+    }
+
+    private val methodMetrics = ConcurrentHashMap<Method, MethodMetrics>()
+
+    override fun invoke(proxy: Any, method: Method, args: Array<out Any?>?): Any? {
+        if (method.declaringClass == Any::class.java) {
+            return invokeTarget(method, args)
+        }
+
+        val metrics = methodMetrics.computeIfAbsent(method) { MethodMetrics(it.name) }
+        metrics.calls.mark()
+
+        val context = if (ThreadLocalRandom.current().nextDouble() < sampleRate) metrics.latency.time() else null
+        try {
+            return invokeTarget(method, args)
+        } catch (ex: Throwable) {
+            metrics.failures.mark()
+            throw ex
+        } finally {
+            context?.stop()
+        }
+    }
+
+    private fun invokeTarget(method: Method, args: Array<out Any?>?): Any? {
+        return try {
+            method.invoke(target, *(args ?: arrayOf()))
+        } catch (ex: InvocationTargetException) {
+            throw ex.targetException
+        }
+    }
+
+    private inner class MethodMetrics(methodName: String) {
+        val calls: Meter = metricRegistry.meter(MetricRegistry.name(metricPrefix, methodName, "calls"))
+        val failures: Meter = metricRegistry.meter(MetricRegistry.name(metricPrefix, methodName, "failures"))
+        val latency: Timer = metricRegistry.timer(MetricRegistry.name(metricPrefix, methodName, "latency"))
+    }
+}
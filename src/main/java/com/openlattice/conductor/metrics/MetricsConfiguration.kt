@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.metrics
+
+import com.fasterxml.jackson.annotation.JsonProperty
+import com.kryptnostic.rhizome.configuration.Configuration
+import com.kryptnostic.rhizome.configuration.ConfigurationKey
+import com.kryptnostic.rhizome.configuration.SimpleConfigurationKey
+import com.kryptnostic.rhizome.configuration.annotation.ReloadableConfiguration
+
+/**
+ * @param enabled Whether metrics are instrumented and served from `/metrics`. Off by default, since it adds a
+ * listening port.
+ * @param host The address the metrics server binds to. Anything other than a loopback address requires a [token].
+ * @param port The port the metrics server listens on.
+ * @param token The bearer token scrapers must present. Leave it unset to serve metrics to the local host only.
+ * @param scrapeCacheMillis How long a rendered scrape is reused, so that frequent or concurrent scrapers don't each pay
+ * for walking every metric.
+ * @param sampleRate Fraction of instrumented calls that are timed. Every call is counted, sampling only applies to the
+ * latency histograms.
+ * @param hazelcastMaps Whether per map operation counts and latencies are exported from Hazelcast's local map stats.
+ * @param jdbcPools Whether the Postgres connection pool publishes its metrics.
+ */
+@ReloadableConfiguration(uri = "metrics.yaml")
+data class MetricsConfiguration(
+        @JsonProperty("enabled") val enabled: Boolean = false,
+        @JsonProperty("host") val host: String = "127.0.0.1",
+        @JsonProperty("port") val port: Int = 9404,
+        @JsonProperty("token") val token: String? = null,
+        @JsonProperty("scrape-cache-millis") val scrapeCacheMillis: Long = 5_000,
+        @JsonProperty("sample-rate") val sampleRate: Double = 0.1,
+        @JsonProperty("hazelcast-maps") val hazelcastMaps: Boolean = true,
+        @JsonProperty("jdbc-pools") val jdbcPools: Boolean = true
+) : Configuration {
+    companion object {
+        @JvmStatic
+        val configKey = SimpleConfigurationKey("metrics.yaml")
+    }
+
+    override fun getKey(): ConfigurationKey {
+        return configKey
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.metrics
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import org.slf4j.LoggerFactory
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.security.MessageDigest
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+private val logger = LoggerFactory.getLogger(MetricsHttpServer::class.java)
+
+const val METRICS_PATH = "/metrics"
+private const val CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8"
+
+/**
+ * Serves the output of the [PrometheusExporter] on [METRICS_PATH].
+ *
+ * Conductor runs without a servlet container, so the export gets its own small HTTP server instead of going through
+ * Jetty and its security filters. Scrapers authenticate with the bearer token from [MetricsConfiguration.token]. A
+ * server without a token is only allowed to bind to a loopback address, so metrics are never exposed unauthenticated
+ * beyond the host.
+ */
+class MetricsHttpServer(
+        private val prometheusExporter: PrometheusExporter,
+        private val metricsConfiguration: MetricsConfiguration
+) : AutoCloseable {
+    private val token = metricsConfiguration.token?.toByteArray(Charsets.UTF_8)
+    private val executor: ExecutorService?
+    private val server: HttpServer?
+
+    /**
+     * The port the server is listening on, or -1 if metrics are disabled.
+     */
+    val port: Int
+        get() = server?.address?.port ?: -1
+
+    init {
+        if (metricsConfiguration.enabled) {
+            val address = InetAddress.getByName(metricsConfiguration.host)
+            check(token != null || address.isLoopbackAddress) {
+                "Metrics can only be served on ${metricsConfiguration.host} if a token is configured."
+            }
+
+            val httpExecutor = Executors.newSingleThreadExecutor(
+                    ThreadFactoryBuilder().setNameFormat("metrics-http-%d").setDaemon(true).build()
+            )
+            val httpServer = HttpServer.create(InetSocketAddress(address, metricsConfiguration.port), 0)
+            httpServer.executor = httpExecutor
+            httpServer.createContext(METRICS_PATH) { exchange -> handle(exchange) }
+            httpServer.start()
+            logger.info("Serving metrics on {}{}.", httpServer.address, METRICS_PATH)
+
+            executor = httpExecutor
+            server = httpServer
+        } else {
+            executor = null
+            server = null
+        }
+    }
+
+    override fun close() {
+        server?.stop(0)
+        executor?.shutdownNow()
+    }
+
+    private fun handle(exchange: HttpExchange) {
+        try {
+            when {
+                exchange.requestMethod != "GET" -> exchange.sendResponseHeaders(405, -1)
+                !isAuthorized(exchange) -> {
+                    exchange.responseHeaders.add("WWW-Authenticate", "Bearer")
+                    exchange.sendResponseHeaders(401, -1)
+                }
+                else -> {
+                    val body = prometheusExporter.scrape().toByteArray(Charsets.UTF_8)
+                    exchange.responseHeaders.add("Content-Type", CONTENT_TYPE)
+                    exchange.sendResponseHeaders(200, body.size.toLong())
+                    exchange.responseBody.write(body)
+                }
+            }
+        } catch (ex: Exception) {
+            logger.error("Unable to serve metrics.", ex)
+            if (exchange.responseCode == -1) {
+                exchange.sendResponseHeaders(500, -1)
+            }
+        } finally {
+            exchange.close()
+        }
+    }
+
+    private fun isAuthorized(exchange: HttpExchange): Boolean {
+        if (token == null) {
+            return true
+        }
+
+        val authorization = exchange.requestHeaders.getFirst("Authorization") ?: return false
+        if (!authorization.startsWith("Bearer ")) {
+            return false
+        }
+        return MessageDigest.isEqual(token, authorization.removePrefix("Bearer ").toByteArray(Charsets.UTF_8))
+    }
+}
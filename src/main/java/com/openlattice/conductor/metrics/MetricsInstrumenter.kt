@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.metrics
+
+import com.codahale.metrics.MetricRegistry
+import com.openlattice.conductor.rpc.ConductorElasticsearchApi
+import com.zaxxer.hikari.HikariDataSource
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.config.BeanPostProcessor
+
+private val logger = LoggerFactory.getLogger(MetricsInstrumenter::class.java)
+
+/**
+ * Adds instrumentation to beans that don't publish metrics on their own.
+ *
+ * Every call into the Elasticsearch api, whether made locally or through the Elasticsearch call serializer on behalf
+ * of other services, is counted and sampled per method. Hikari connection pools publish their pool usage, wait and
+ * connection times.
+ */
+class MetricsInstrumenter(
+        private val metricsConfiguration: MetricsConfiguration,
+        private val metricRegistry: MetricRegistry
+) : BeanPostProcessor {
+
+    override fun postProcessAfterInitialization(bean: Any, beanName: String): Any {
+        if (!metricsConfiguration.enabled) {
+            return bean
+        }
+
+        return when (bean) {
+            is ConductorElasticsearchApi -> InstrumentedProxy.wrap(
+                    ConductorElasticsearchApi::class.java,
+                    bean,
+                    MetricRegistry.name(ConductorElasticsearchApi::class.java),
+                    metricRegistry,
+                    metricsConfiguration.sampleRate
+            )
+            is HikariDataSource -> {
+                instrumentPool(bean, beanName)
+                bean
+            }
+            else -> bean
+        }
+    }
+
+    private fun instrumentPool(dataSource: HikariDataSource, beanName: String) {
+        if (!metricsConfiguration.jdbcPools || dataSource.metricRegistry != null) {
+            return
+        }
+
+        try {
+            dataSource.metricRegistry = metricRegistry
+        } catch (ex: IllegalStateException) {
+            logger.warn("Unable to publish metrics for connection pool {}.", beanName, ex)
+        }
+    }
+}
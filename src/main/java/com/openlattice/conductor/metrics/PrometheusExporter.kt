@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.metrics
+
+import com.codahale.metrics.Counter
+import com.codahale.metrics.Gauge
+import com.codahale.metrics.Histogram
+import com.codahale.metrics.Meter
+import com.codahale.metrics.MetricRegistry
+import com.codahale.metrics.Snapshot
+import com.codahale.metrics.Timer
+import com.hazelcast.core.HazelcastInstance
+import com.hazelcast.map.IMap
+import java.util.concurrent.TimeUnit
+
+private val INVALID_NAME_CHARACTERS = Regex("[^a-zA-Z0-9_:]")
+private val QUANTILES = listOf(0.5, 0.75, 0.95, 0.99, 0.999)
+private val NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1).toDouble()
+
+/**
+ * Renders the [MetricRegistry] and the local statistics of every Hazelcast map in the Prometheus text exposition
+ * format.
+ *
+ * Rendering walks every metric, so the result is reused for [MetricsConfiguration.scrapeCacheMillis] and concurrent
+ * scrapes wait for a single render instead of each doing their own. Timers are exported in seconds.
+ */
+class PrometheusExporter(
+        private val metricRegistry: MetricRegistry,
+        private val hazelcastInstance: HazelcastInstance,
+        private val metricsConfiguration: MetricsConfiguration
+) {
+    @Volatile
+    private var rendered = ""
+
+    @Volatile
+    private var renderedAt = 0L
+
+    fun scrape(): String {
+        if (System.currentTimeMillis() - renderedAt < metricsConfiguration.scrapeCacheMillis) {
+            return rendered
+        }
+
+        synchronized(this) {
+            if (System.currentTimeMillis() - renderedAt >= metricsConfiguration.scrapeCacheMillis) {
+                rendered = render()
+                renderedAt = System.currentTimeMillis()
+            }
+            return rendered
+        }
+    }
+
+    private fun render(): String {
+        val out = StringBuilder(64 * 1024)
+
+        metricRegistry.gauges.forEach { (name, gauge) -> writeGauge(out, sanitize(name), gauge) }
+        metricRegistry.counters.forEach { (name, counter) -> writeCounter(out, sanitize(name), counter) }
+        metricRegistry.meters.forEach { (name, meter) -> writeMeter(out, sanitize(name), meter) }
+        metricRegistry.histograms.forEach { (name, histogram) -> writeHistogram(out, sanitize(name), histogram) }
+        metricRegistry.timers.forEach { (name, timer) -> writeTimer(out, sanitize(name), timer) }
+
+        if (metricsConfiguration.hazelcastMaps) {
+            writeMapStats(out)
+        }
+
+        return out.toString()
+    }
+
+    private fun writeGauge(out: StringBuilder, name: String, gauge: Gauge<*>) {
+        val value = gauge.value as? Number ?: return
+        out.append("# TYPE ").append(name).append(" gauge\n")
+        out.append(name).append(' ').append(value.toDouble()).append('\n')
+    }
+
+    private fun writeCounter(out: StringBuilder, name: String, counter: Counter) {
+        out.append("# TYPE ").append(name).append(" gauge\n")
+        out.append(name).append(' ').append(counter.count).append('\n')
+    }
+
+    private fun writeMeter(out: StringBuilder, name: String, meter: Meter) {
+        out.append("# TYPE ").append(name).append("_total counter\n")
+        out.append(name).append("_total ").append(meter.count).append('\n')
+        out.append("# TYPE ").append(name).append("_m1_rate gauge\n")
+        out.append(name).append("_m1_rate ").append(meter.oneMinuteRate).append('\n')
+    }
+
+    private fun writeHistogram(out: StringBuilder, name: String, histogram: Histogram) {
+        writeSummary(out, name, histogram.snapshot, histogram.count, 1.0)
+    }
+
+    private fun writeTimer(out: StringBuilder, name: String, timer: Timer) {
+        writeSummary(out, "${name}_seconds", timer.snapshot, timer.count, NANOS_PER_SECOND)
+    }
+
+    private fun writeSummary(out: StringBuilder, name: String, snapshot: Snapshot, count: Long, divisor: Double) {
+        out.append("# TYPE ").append(name).append(" summary\n")
+        QUANTILES.forEach { quantile ->
+            out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(snapshot.getValue(quantile) / divisor).append('\n')
+        }
+        out.append(name).append("_count ").append(count).append('\n')
+    }
+
+    private fun writeMapStats(out: StringBuilder) {
+        val maps = hazelcastInstance.distributedObjects.filterIsInstance<IMap<*, *>>()
+        if (maps.isEmpty()) {
+            return
+        }
+
+        val stats = maps.associate { it.name to it.localMapStats }
+
+        writeMapStat(out, "hazelcast_map_gets_total", "counter", stats) { it.getOperationCount }
+        writeMapStat(out, "hazelcast_map_puts_total", "counter", stats) { it.putOperationCount }
+        writeMapStat(out, "hazelcast_map_removes_total", "counter", stats) { it.removeOperationCount }
+        writeMapStat(out, "hazelcast_map_other_operations_total", "counter", stats) { it.otherOperationCount }
+        writeMapStat(out, "hazelcast_map_get_latency_seconds_total", "counter", stats) { it.totalGetLatency / 1000.0 }
+        writeMapStat(out, "hazelcast_map_put_latency_seconds_total", "counter", stats) { it.totalPutLatency / 1000.0 }
+        writeMapStat(out, "hazelcast_map_remove_latency_seconds_total", "counter", stats) {
+            it.totalRemoveLatency / 1000.0
+        }
+        writeMapStat(out, "hazelcast_map_hits_total", "counter", stats) { it.hits }
+        writeMapStat(out, "hazelcast_map_owned_entries", "gauge", stats) { it.ownedEntryCount }
+        writeMapStat(out, "hazelcast_map_dirty_entries", "gauge", stats) { it.dirtyEntryCount }
+        writeMapStat(out, "hazelcast_map_heap_cost_bytes", "gauge", stats) { it.heapCost }
+    }
+
+    private fun <S> writeMapStat(
+            out: StringBuilder,
+            name: String,
+            type: String,
+            stats: Map<String, S>,
+            value: (S) -> Number
+    ) {
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n')
+        stats.forEach { (mapName, mapStats) ->
+            out.append(name).append("{map=\"").append(mapName).append("\"} ")
+                    .append(value(mapStats).toDouble()).append('\n')
+        }
+    }
+
+    private fun sanitize(name: String): String {
+        return name.replace(INVALID_NAME_CHARACTERS, "_")
+    }
+}
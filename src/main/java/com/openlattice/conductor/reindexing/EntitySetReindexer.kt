@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.reindexing
+
+import com.codahale.metrics.Meter
+import com.codahale.metrics.MetricRegistry
+import com.hazelcast.core.HazelcastInstance
+import com.hazelcast.map.IMap
+import com.hazelcast.query.Predicates
+import com.openlattice.conductor.jobs.BulkJobExecutor
+import com.openlattice.conductor.jobs.JobCheckpointStore
+import com.openlattice.data.storage.partitions.PartitionManager
+import com.openlattice.postgres.PostgresColumn.ENTITY_SET_ID
+import com.openlattice.postgres.PostgresColumn.ID
+import com.openlattice.postgres.PostgresColumn.LAST_INDEX
+import com.openlattice.postgres.PostgresColumn.LAST_WRITE
+import com.openlattice.postgres.PostgresColumn.PARTITION
+import com.openlattice.postgres.PostgresTable.IDS
+import com.zaxxer.hikari.HikariDataSource
+import org.slf4j.LoggerFactory
+import java.time.Instant
+import java.time.OffsetDateTime
+import java.time.ZoneOffset
+import java.util.*
+import java.util.concurrent.TimeUnit
+
+private val logger = LoggerFactory.getLogger(EntitySetReindexer::class.java)
+
+const val REINDEX_CHECKPOINTS_MAP = "conductor_reindex_checkpoints"
+private const val JOB_TYPE = "reindex"
+private const val USER_CONTEXT_KEY = "conductor.entitySetReindexer"
+
+/**
+ * Runs full reindexes of entity sets, split up by data partition.
+ *
+ * Every (job, entity set, partition) slice gets a checkpoint in [REINDEX_CHECKPOINTS_MAP] and is executed through the
+ * [BulkJobExecutor] on the member that owns that checkpoint, so partitions are spread across the cluster and run in
+ * parallel without holding up the jobs of the job service. Rows are marked for reindexing in id order in batches of
+ * [ReindexingConfiguration.batchSize] and the checkpoint is advanced, and persisted to the [JobCheckpointStore],
+ * after every batch. If a member goes away, the durable executor resubmits its slices elsewhere and
+ * [ReindexResumeInitializationTask] picks up anything left over after a restart. Either way work continues from the
+ * last checkpoint instead of from the beginning.
+ *
+ * Marked rows are picked up by the background indexer, so progress is reported from the rows indexed since the job
+ * started rather than from the rows marked. Checkpoints of marked partitions expire after
+ * [ReindexingConfiguration.finishedCheckpointTtlMillis].
+ */
+class EntitySetReindexer(
+        private val hazelcastInstance: HazelcastInstance,
+        private val hds: HikariDataSource,
+        private val partitionManager: PartitionManager,
+        private val reindexingConfiguration: ReindexingConfiguration,
+        private val jobExecutor: BulkJobExecutor,
+        private val checkpointStore: JobCheckpointStore,
+        metricRegistry: MetricRegistry
+) {
+    companion object {
+        @JvmStatic
+        fun getLocalReindexer(hazelcastInstance: HazelcastInstance): EntitySetReindexer {
+            return checkNotNull(hazelcastInstance.userContext[USER_CONTEXT_KEY] as EntitySetReindexer?) {
+                "Entity set reindexer has not been initialized on this member."
+            }
+        }
+    }
+
+    private val checkpoints: IMap<PartitionReindexKey, PartitionReindexCheckpoint> =
+            hazelcastInstance.getMap(REINDEX_CHECKPOINTS_MAP)
+    private val rowsMarked: Meter = metricRegistry.meter(MetricRegistry.name(EntitySetReindexer::class.java, "rows"))
+
+    init {
+        hazelcastInstance.userContext[USER_CONTEXT_KEY] = this
+    }
+
+    /**
+     * Starts a full reindex of the provided entity sets. Other services trigger it through [EntitySetReindexCall].
+     *
+     * @return The id of the reindex job, which can be used to check on its progress.
+     */
+    fun reindex(entitySetIds: Set<UUID>): UUID {
+        val jobId = UUID.randomUUID()
+        val keys = entitySetIds.flatMap { entitySetId ->
+            partitionManager.getEntitySetPartitions(entitySetId).map { partition ->
+                PartitionReindexKey(jobId, entitySetId, partition)
+            }
+        }
+
+        val started = keys.associateWith { PartitionReindexCheckpoint.start(countRows(it)) }
+        started.forEach { (key, checkpoint) -> persist(key, checkpoint) }
+        checkpoints.putAll(started)
+        keys.forEach(this::submit)
+
+        logger.info(
+                "Started reindex job {} for {} entity sets across {} partitions.",
+                jobId,
+                entitySetIds.size,
+                keys.size
+        )
+        return jobId
+    }
+
+    /**
+     * Restores checkpoints persisted before a cluster restart and resubmits every unfinished partition whose
+     * checkpoint is owned by this member.
+     */
+    fun resumeLocalPartitions(): Int {
+        checkpointStore.loadAll(JOB_TYPE, PartitionReindexCheckpoint::class.java)
+                .forEach { (id, checkpoint) ->
+                    checkpoints.putIfAbsent(PartitionReindexKey.fromCheckpointId(id), checkpoint)
+                }
+
+        val unfinished = checkpoints.localKeySet(Predicates.equal("marked", false))
+        unfinished.forEach(this::submit)
+        unfinished.map { it.jobId }.toSet().forEach(this::logProgress)
+        return unfinished.size
+    }
+
+    /**
+     * Aggregates the checkpoints of every partition of a job and counts how many of its rows the background indexer
+     * has indexed since the job started. Other services read it through [ReindexProgressCall].
+     */
+    fun getProgress(jobId: UUID): ReindexProgress {
+        val partitions = checkpoints.entrySet(Predicates.equal("__key.jobId", jobId))
+        val startedAt = partitions.map { it.value.startedAt }.min() ?: System.currentTimeMillis()
+        val indexing = partitions
+                .groupBy({ it.key.entitySetId }, { it.key.partition })
+                .map { (entitySetId, entitySetPartitions) ->
+                    countIndexing(entitySetId, entitySetPartitions, startedAt)
+                }
+        val rowsIndexed = indexing.map { it.indexed }.sum()
+        val rowsPending = indexing.map { it.pending }.sum()
+
+        val elapsedSeconds = (System.currentTimeMillis() - startedAt).coerceAtLeast(1) / 1000.0
+        val rowsPerSecond = rowsIndexed / elapsedSeconds
+        val etaMillis = if (rowsPerSecond > 0) (rowsPending / rowsPerSecond * 1000).toLong() else -1L
+
+        return ReindexProgress(
+                jobId,
+                partitions.size,
+                partitions.count { it.value.marked },
+                partitions.map { it.value.rowsMarked }.sum(),
+                rowsIndexed,
+                rowsPending,
+                partitions.map { it.value.totalRows }.sum(),
+                rowsPerSecond,
+                etaMillis
+        )
+    }
+
+    /**
+     * Marks every remaining row in a partition for reindexing, checkpointing after each batch. If another thread in
+     * the cluster is already working on the partition, this returns immediately.
+     *
+     * @return The number of rows marked by this call.
+     */
+    fun reindexPartition(key: PartitionReindexKey): Long {
+        if (!checkpoints.tryLock(key)) {
+            logger.info("Partition {} of reindex job {} is already running elsewhere.", key.partition, key.jobId)
+            return 0
+        }
+
+        try {
+            var checkpoint = checkpoints[key] ?: return 0
+            var marked = 0L
+            var lastLog = System.currentTimeMillis()
+
+            while (!checkpoint.marked) {
+                val batch = markBatch(key, checkpoint.cursor)
+                marked += batch.rows
+                rowsMarked.mark(batch.rows)
+
+                checkpoint = checkpoint.copy(
+                        cursor = batch.cursor ?: checkpoint.cursor,
+                        rowsMarked = checkpoint.rowsMarked + batch.rows,
+                        marked = batch.rows < reindexingConfiguration.batchSize
+                )
+                if (checkpoint.marked) {
+                    checkpoints.set(
+                            key,
+                            checkpoint,
+                            reindexingConfiguration.finishedCheckpointTtlMillis,
+                            TimeUnit.MILLISECONDS
+                    )
+                } else {
+                    checkpoints.set(key, checkpoint)
+                }
+                persist(key, checkpoint)
+
+                if (System.currentTimeMillis() - lastLog > reindexingConfiguration.progressLogIntervalMillis) {
+                    logProgress(key.jobId)
+                    lastLog = System.currentTimeMillis()
+                }
+            }
+
+            logger.info(
+                    "Marked partition {} of entity set {} for reindex job {} ({} rows).",
+                    key.partition,
+                    key.entitySetId,
+                    key.jobId,
+                    checkpoint.rowsMarked
+            )
+            return marked
+        } finally {
+            checkpoints.unlock(key)
+        }
+    }
+
+    private fun submit(key: PartitionReindexKey) {
+        jobExecutor.submitToKeyOwner(JOB_TYPE, key, PartitionReindexTask(key))
+    }
+
+    private fun persist(key: PartitionReindexKey, checkpoint: PartitionReindexCheckpoint) {
+        if (checkpoint.marked) {
+            checkpointStore.delete(JOB_TYPE, key.checkpointId)
+        } else {
+            checkpointStore.save(JOB_TYPE, key.checkpointId, checkpoint)
+        }
+    }
+
+    private fun logProgress(jobId: UUID) {
+        val progress = getProgress(jobId)
+        logger.info(
+                "Reindex job {}: {}/{} rows marked in {}/{} partitions, {} indexed, {} pending, {} rows/s, ETA {} ms.",
+                jobId,
+                progress.rowsMarked,
+                progress.totalRows,
+                progress.markedPartitions,
+                progress.partitions,
+                progress.rowsIndexed,
+                progress.rowsPending,
+                "%.1f".format(progress.rowsPerSecond),
+                progress.etaMillis
+        )
+    }
+
+    private fun countRows(key: PartitionReindexKey): Long {
+        return hds.connection.use { connection ->
+            connection.prepareStatement(COUNT_ROWS_SQL).use { ps ->
+                ps.setInt(1, key.partition)
+                ps.setObject(2, key.entitySetId)
+                ps.executeQuery().use { rs ->
+                    if (rs.next()) rs.getLong(1) else 0L
+                }
+            }
+        }
+    }
+
+    private fun countIndexing(entitySetId: UUID, partitions: List<Int>, startedAt: Long): IndexingCounts {
+        return hds.connection.use { connection ->
+            connection.prepareStatement(COUNT_INDEXING_SQL).use { ps ->
+                ps.setObject(1, OffsetDateTime.ofInstant(Instant.ofEpochMilli(startedAt), ZoneOffset.UTC))
+                ps.setArray(2, connection.createArrayOf("integer", partitions.toTypedArray()))
+                ps.setObject(3, entitySetId)
+                ps.executeQuery().use { rs ->
+                    rs.next()
+                    IndexingCounts(rs.getLong(1), rs.getLong(2))
+                }
+            }
+        }
+    }
+
+    private fun markBatch(key: PartitionReindexKey, cursor: UUID): MarkedBatch {
+        return hds.connection.use { connection ->
+            connection.prepareStatement(MARK_BATCH_SQL).use { ps ->
+                ps.setInt(1, key.partition)
+                ps.setObject(2, key.entitySetId)
+                ps.setObject(3, cursor)
+                ps.setInt(4, reindexingConfiguration.batchSize)
+                ps.setInt(5, key.partition)
+                ps.executeQuery().use { rs ->
+                    rs.next()
+                    MarkedBatch(rs.getLong(1), rs.getObject(2, UUID::class.java))
+                }
+            }
+        }
+    }
+
+    private data class MarkedBatch(val rows: Long, val cursor: UUID?)
+
+    private data class IndexingCounts(val indexed: Long, val pending: Long)
+}
+
+private val COUNT_ROWS_SQL = """
+    SELECT count(*) FROM ${IDS.name} WHERE ${PARTITION.name} = ? AND ${ENTITY_SET_ID.name} = ?
+""".trimIndent()
+
+/**
+ * Rows indexed since the job started and rows still waiting for the indexer, which marks a row as indexed by moving
+ * its last index past its last write.
+ *
+ * 1. job start
+ * 2. partitions
+ * 3. entity set id
+ */
+private val COUNT_INDEXING_SQL = """
+    SELECT
+        count(*) FILTER (WHERE ${LAST_INDEX.name} >= ? AND ${LAST_INDEX.name} >= ${LAST_WRITE.name}),
+        count(*) FILTER (WHERE ${LAST_INDEX.name} < ${LAST_WRITE.name})
+    FROM ${IDS.name}
+    WHERE ${PARTITION.name} = ANY(?) AND ${ENTITY_SET_ID.name} = ?
+""".trimIndent()
+
+/**
+ * 1. partition
+ * 2. entity set id
+ * 3. cursor
+ * 4. batch size
+ * 5. partition
+ */
+private val MARK_BATCH_SQL = """
+    WITH batch AS (
+        SELECT ${ID.name} FROM ${IDS.name}
+        WHERE ${PARTITION.name} = ? AND ${ENTITY_SET_ID.name} = ? AND ${ID.name} > ?
+        ORDER BY ${ID.name}
+        LIMIT ?
+    ), marked AS (
+        UPDATE ${IDS.name} SET ${LAST_INDEX.name} = '-infinity'
+        FROM batch
+        WHERE ${IDS.name}.${PARTITION.name} = ? AND ${IDS.name}.${ID.name} = batch.${ID.name}
+        RETURNING ${IDS.name}.${ID.name}
+    )
+    SELECT (SELECT count(*) FROM marked), (SELECT ${ID.name} FROM batch ORDER BY ${ID.name} DESC LIMIT 1)
+""".trimIndent()
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.reindexing
+
+import com.fasterxml.jackson.annotation.JsonCreator
+import com.fasterxml.jackson.annotation.JsonProperty
+import java.io.Serializable
+import java.util.*
+
+/**
+ * Identifies the slice of a reindex job that covers a single entity set in a single data partition.
+ */
+data class PartitionReindexKey(
+        val jobId: UUID,
+        val entitySetId: UUID,
+        val partition: Int
+) : Serializable {
+    companion object {
+        private const val serialVersionUID = 1L
+
+        @JvmStatic
+        fun fromCheckpointId(checkpointId: String): PartitionReindexKey {
+            val (jobId, entitySetId, partition) = checkpointId.split("/")
+            return PartitionReindexKey(UUID.fromString(jobId), UUID.fromString(entitySetId), partition.toInt())
+        }
+    }
+
+    /**
+     * The id the checkpoint of this slice is persisted under in the job checkpoint store.
+     */
+    val checkpointId: String
+        get() = "$jobId/$entitySetId/$partition"
+}
+
+/**
+ * Progress of a single [PartitionReindexKey] in marking its rows for reindexing. The rows are indexed afterwards by the
+ * background indexer, so a marked partition isn't indexed yet.
+ *
+ * @param cursor The last entity key id marked for reindexing. Rows are visited in id order so a resumed partition
+ * continues strictly after this id.
+ * @param rowsMarked The number of rows marked so far.
+ * @param totalRows The number of rows in the partition when the job was started.
+ * @param startedAt Epoch millis at which the partition was first started.
+ * @param marked Whether every row in the partition has been marked.
+ */
+data class PartitionReindexCheckpoint @JsonCreator constructor(
+        @JsonProperty("cursor") val cursor: UUID,
+        @JsonProperty("rowsMarked") val rowsMarked: Long,
+        @JsonProperty("totalRows") val totalRows: Long,
+        @JsonProperty("startedAt") val startedAt: Long,
+        @JsonProperty("marked") val marked: Boolean
+) : Serializable {
+    companion object {
+        private const val serialVersionUID = 1L
+
+        @JvmField
+        val START_CURSOR = UUID(0, 0)
+
+        @JvmStatic
+        fun start(totalRows: Long): PartitionReindexCheckpoint {
+            return PartitionReindexCheckpoint(START_CURSOR, 0, totalRows, System.currentTimeMillis(), false)
+        }
+    }
+}
+
+/**
+ * Aggregated progress of a reindex job across all of its partitions.
+ *
+ * A job first marks every row of its entity sets for reindexing and the background indexer then indexes the marked
+ * rows. [rowsIndexed], [rowsPerSecond] and [etaMillis] follow the indexer, not the marking. Jobs that are unknown, or
+ * whose checkpoints expired after [ReindexingConfiguration.finishedCheckpointTtlMillis], report no partitions.
+ *
+ * @param partitions The number of partitions of the job.
+ * @param markedPartitions The number of partitions whose rows have all been marked.
+ * @param rowsMarked The number of rows marked so far.
+ * @param rowsIndexed The number of rows indexed since the job started.
+ * @param rowsPending The number of rows that still have to be indexed.
+ * @param totalRows The number of rows when the job was started.
+ * @param rowsPerSecond The rate at which rows were indexed since the job started.
+ * @param etaMillis The estimated time until every pending row is indexed, or -1 if nothing was indexed yet.
+ */
+data class ReindexProgress(
+        val jobId: UUID,
+        val partitions: Int,
+        val markedPartitions: Int,
+        val rowsMarked: Long,
+        val rowsIndexed: Long,
+        val rowsPending: Long,
+        val totalRows: Long,
+        val rowsPerSecond: Double,
+        val etaMillis: Long
+) : Serializable {
+    companion object {
+        private const val serialVersionUID = 1L
+    }
+
+    /**
+     * Whether every row has been marked and the indexer has caught up with all of them.
+     */
+    val finished: Boolean
+        get() = partitions == markedPartitions && rowsPending == 0L
+}
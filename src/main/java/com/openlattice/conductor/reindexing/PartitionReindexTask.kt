@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.reindexing
+
+import com.hazelcast.core.HazelcastInstance
+import com.hazelcast.core.HazelcastInstanceAware
+import java.io.Serializable
+import java.util.concurrent.Callable
+
+/**
+ * Reindexes a single partition on the member that owns its checkpoint. Only the key travels over the wire, the
+ * member local [EntitySetReindexer] is looked up from the user context of the Hazelcast instance.
+ */
+class PartitionReindexTask(private val key: PartitionReindexKey) : Callable<Long>, HazelcastInstanceAware,
+        Serializable {
+    companion object {
+        private const val serialVersionUID = 1L
+    }
+
+    @Transient
+    private lateinit var hazelcastInstance: HazelcastInstance
+
+    override fun setHazelcastInstance(hazelcastInstance: HazelcastInstance) {
+        this.hazelcastInstance = hazelcastInstance
+    }
+
+    override fun call(): Long {
+        return EntitySetReindexer.getLocalReindexer(hazelcastInstance).reindexPartition(key)
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.reindexing
+
+import com.hazelcast.core.HazelcastInstance
+import com.hazelcast.core.HazelcastInstanceAware
+import java.io.Serializable
+import java.util.*
+import java.util.concurrent.Callable
+
+/**
+ * Starts a full reindex of the provided entity sets from any member or client of the cluster, in the same way the
+ * Elasticsearch api calls of the search service are submitted to a conductor member. The member that runs it splits
+ * the job up by partition and spreads the slices across the cluster.
+ *
+ * Submit it to any executor of the cluster and keep the returned job id to check on progress with
+ * [ReindexProgressCall].
+ */
+class EntitySetReindexCall(private val entitySetIds: Set<UUID>) : Callable<UUID>, HazelcastInstanceAware,
+        Serializable {
+    companion object {
+        private const val serialVersionUID = 1L
+    }
+
+    @Transient
+    private lateinit var hazelcastInstance: HazelcastInstance
+
+    override fun setHazelcastInstance(hazelcastInstance: HazelcastInstance) {
+        this.hazelcastInstance = hazelcastInstance
+    }
+
+    override fun call(): UUID {
+        return EntitySetReindexer.getLocalReindexer(hazelcastInstance).reindex(entitySetIds)
+    }
+}
+
+/**
+ * Reports how far a reindex job started through [EntitySetReindexCall] got with marking rows, and how far the indexer
+ * got with indexing them. Checkpoints are kept in a cluster wide map, so it can run on any member.
+ */
+class ReindexProgressCall(private val jobId: UUID) : Callable<ReindexProgress>, HazelcastInstanceAware, Serializable {
+    companion object {
+        private const val serialVersionUID = 1L
+    }
+
+    @Transient
+    private lateinit var hazelcastInstance: HazelcastInstance
+
+    override fun setHazelcastInstance(hazelcastInstance: HazelcastInstance) {
+        this.hazelcastInstance = hazelcastInstance
+    }
+
+    override fun call(): ReindexProgress {
+        return EntitySetReindexer.getLocalReindexer(hazelcastInstance).getProgress(jobId)
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.reindexing
+
+import com.openlattice.tasks.HazelcastInitializationTask
+import com.openlattice.tasks.HazelcastTaskDependencies
+import com.openlattice.tasks.PostConstructInitializerTaskDependencies.PostConstructInitializerTask
+import org.slf4j.LoggerFactory
+
+private val logger = LoggerFactory.getLogger(ReindexResumeInitializationTask::class.java)
+
+data class ReindexResumeDependencies(val reindexer: EntitySetReindexer) : HazelcastTaskDependencies
+
+/**
+ * Resubmits any unfinished reindex partitions owned by this member, continuing each from its last checkpoint.
+ */
+class ReindexResumeInitializationTask : HazelcastInitializationTask<ReindexResumeDependencies> {
+    override fun getInitialDelay(): Long {
+        return 0
+    }
+
+    override fun initialize(dependencies: ReindexResumeDependencies) {
+        val resumed = dependencies.reindexer.resumeLocalPartitions()
+        logger.info("Resumed {} unfinished reindex partitions.", resumed)
+    }
+
+    override fun after(): Set<Class<out HazelcastInitializationTask<*>>> {
+        return setOf(PostConstructInitializerTask::class.java)
+    }
+
+    override fun getName(): String {
+        return "resume_reindex_partitions"
+    }
+
+    override fun getDependenciesClass(): Class<out ReindexResumeDependencies> {
+        return ReindexResumeDependencies::class.java
+    }
+}
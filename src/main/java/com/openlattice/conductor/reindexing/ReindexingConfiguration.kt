@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.reindexing
+
+import com.fasterxml.jackson.annotation.JsonProperty
+import com.kryptnostic.rhizome.configuration.Configuration
+import com.kryptnostic.rhizome.configuration.ConfigurationKey
+import com.kryptnostic.rhizome.configuration.SimpleConfigurationKey
+import com.kryptnostic.rhizome.configuration.annotation.ReloadableConfiguration
+
+private const val DEFAULT_BATCH_SIZE = 10_000
+private const val DEFAULT_PROGRESS_LOG_INTERVAL_MILLIS = 30_000L
+private const val DEFAULT_FINISHED_CHECKPOINT_TTL_MILLIS = 24 * 60 * 60 * 1000L
+
+/**
+ * Controls how full reindexes of entity sets are split up and checkpointed.
+ *
+ * @param batchSize The number of rows marked for reindexing per partition before a checkpoint is written.
+ * @param progressLogIntervalMillis How often a running partition logs its throughput and remaining time.
+ * @param finishedCheckpointTtlMillis How long the checkpoint of a fully marked partition is kept around, so that the
+ * progress of its job can still be looked up while the indexer catches up.
+ */
+@ReloadableConfiguration(uri = "reindexing.yaml")
+data class ReindexingConfiguration(
+        @JsonProperty("batch-size") val batchSize: Int = DEFAULT_BATCH_SIZE,
+        @JsonProperty("progress-log-interval-millis")
+        val progressLogIntervalMillis: Long = DEFAULT_PROGRESS_LOG_INTERVAL_MILLIS,
+        @JsonProperty("finished-checkpoint-ttl-millis")
+        val finishedCheckpointTtlMillis: Long = DEFAULT_FINISHED_CHECKPOINT_TTL_MILLIS
+) : Configuration {
+    companion object {
+        @JvmStatic
+        val configKey = SimpleConfigurationKey("reindexing.yaml")
+    }
+
+    override fun getKey(): ConfigurationKey {
+        return configKey
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.search
+
+import com.fasterxml.jackson.annotation.JsonProperty
+import com.kryptnostic.rhizome.configuration.Configuration
+import com.kryptnostic.rhizome.configuration.ConfigurationKey
+import com.kryptnostic.rhizome.configuration.SimpleConfigurationKey
+import com.kryptnostic.rhizome.configuration.annotation.ReloadableConfiguration
+
+/**
+ * @param enabled Whether Elasticsearch search results are cached.
+ * @param maxEntries Maximum number of cached results.
+ * @param ttlMillis Upper bound on how long a result is served from the cache, even if no invalidation arrives.
+ * @param refreshIntervalMillis How long after a write Elasticsearch may still serve searches that don't include it.
+ * Results of searches that start within this long of a write to their ids aren't cached. This should be at least the
+ * refresh interval of the indices searched.
+ * @param readMethods Names of the Elasticsearch api methods whose results are cached. Calls to any other method are
+ * treated as writes and invalidate the cached results of the entity sets and other objects they refer to, so only
+ * methods that never modify an index belong here.
+ */
+@ReloadableConfiguration(uri = "searchcache.yaml")
+data class SearchCacheConfiguration(
+        @JsonProperty("enabled") val enabled: Boolean = false,
+        @JsonProperty("max-entries") val maxEntries: Long = 10_000,
+        @JsonProperty("ttl-millis") val ttlMillis: Long = 30_000,
+        @JsonProperty("refresh-interval-millis") val refreshIntervalMillis: Long = 1_000,
+        @JsonProperty("read-methods") val readMethods: List<String> = listOf()
+) : Configuration {
+    companion object {
+        @JvmStatic
+        val configKey = SimpleConfigurationKey("searchcache.yaml")
+    }
+
+    override fun getKey(): ConfigurationKey {
+        return configKey
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.search
+
+import com.codahale.metrics.Counter
+import com.codahale.metrics.Gauge
+import com.codahale.metrics.Meter
+import com.codahale.metrics.MetricRegistry
+import com.codahale.metrics.Timer
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import com.google.common.cache.RemovalCause
+import com.hazelcast.core.HazelcastInstance
+import com.hazelcast.internal.serialization.Data
+import com.hazelcast.nio.serialization.HazelcastSerializationException
+import com.hazelcast.spi.impl.SerializationServiceSupport
+import com.hazelcast.topic.ITopic
+import com.openlattice.conductor.rpc.ConductorElasticsearchApi
+import org.slf4j.LoggerFactory
+import java.lang.reflect.InvocationHandler
+import java.lang.reflect.InvocationTargetException
+import java.lang.reflect.Method
+import java.lang.reflect.Proxy
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+private val logger = LoggerFactory.getLogger(SearchResultCache::class.java)
+
+const val SEARCH_CACHE_INVALIDATIONS_TOPIC = "conductor_search_cache_invalidations"
+
+/**
+ * Caches the raw results of Elasticsearch searches made through the [ConductorElasticsearchApi].
+ *
+ * Only the methods listed in [SearchCacheConfiguration.readMethods] are cached; every other method is a write. Results
+ * are keyed by the search method and all of its arguments. Those include the entity sets searched and the property
+ * types the caller is authorized to see, so principals with the same authorized view share results while principals
+ * with different views never see each other's. Authorization is still enforced by the search service before results
+ * are hydrated from Postgres.
+ *
+ * Results are kept in their serialized form and every caller gets its own deserialized copy, so a caller that modifies
+ * a result can't change what other callers see.
+ *
+ * Cached results are indexed by the ids in their arguments. A write invalidates the results for the ids it refers to
+ * once it completes, on every member through a Hazelcast topic. Results of searches without any ids are invalidated by
+ * every write, and writes without any ids invalidate everything. Each id has its own generation, so a search is only
+ * discarded instead of cached when a write to one of its own ids overlapped with it.
+ *
+ * Elasticsearch only makes writes visible to searches once the index is refreshed, after the write has returned. A
+ * search that starts within [SearchCacheConfiguration.refreshIntervalMillis] of a write to one of its ids may not see
+ * that write yet, so its result is returned but not cached.
+ *
+ * Hits, misses, hit rate and the search time saved are published per search method.
+ */
+class SearchResultCache<T : Any> private constructor(
+        type: Class<T>,
+        private val target: T,
+        hazelcastInstance: HazelcastInstance,
+        private val searchCacheConfiguration: SearchCacheConfiguration,
+        private val metricRegistry: MetricRegistry
+) : InvocationHandler {
+    companion object {
+        @JvmStatic
+        fun wrap(
+                target: ConductorElasticsearchApi,
+                hazelcastInstance: HazelcastInstance,
+                searchCacheConfiguration: SearchCacheConfiguration,
+                metricRegistry: MetricRegistry
+        ): ConductorElasticsearchApi {
+            return wrap(
+                    ConductorElasticsearchApi::class.java,
+                    target,
+                    hazelcastInstance,
+                    searchCacheConfiguration,
+                    metricRegistry
+            )
+        }
+
+        @JvmStatic
+        fun <T : Any> wrap(
+                type: Class<T>,
+                target: T,
+                hazelcastInstance: HazelcastInstance,
+                searchCacheConfiguration: SearchCacheConfiguration,
+                metricRegistry: MetricRegistry
+        ): T {
+            return type.cast(Proxy.newProxyInstance(
+                    type.classLoader,
+                    arrayOf(type),
+                    SearchResultCache(type, target, hazelcastInstance, searchCacheConfiguration, metricRegistry)
+            ))
+        }
+    }
+
+    private val serializationService = (hazelcastInstance as SerializationServiceSupport).serializationService
+    private val ttlNanos = TimeUnit.MILLISECONDS.toNanos(searchCacheConfiguration.ttlMillis)
+    private val refreshIntervalNanos = TimeUnit.MILLISECONDS.toNanos(searchCacheConfiguration.refreshIntervalMillis)
+    private val readMethods: Set<String>
+    private val results: Cache<CacheKey, Data> = CacheBuilder.newBuilder()
+            .maximumSize(searchCacheConfiguration.maxEntries)
+            .expireAfterWrite(searchCacheConfiguration.ttlMillis, TimeUnit.MILLISECONDS)
+            .removalListener<CacheKey, Data> { if (it.cause != RemovalCause.REPLACED) unindex(it.key!!) }
+            .build()
+    private val keysById = ConcurrentHashMap<UUID, MutableSet<CacheKey>>()
+    private val unscopedKeys: MutableSet<CacheKey> = ConcurrentHashMap.newKeySet()
+
+    // Searches that take longer than the ttl aren't cached, so a generation nobody touched for that long can go.
+    private val generations: Cache<UUID, AtomicLong> = CacheBuilder.newBuilder()
+            .expireAfterAccess(searchCacheConfiguration.ttlMillis, TimeUnit.MILLISECONDS)
+            .build()
+    private val fullInvalidations = AtomicLong()
+
+    // When each id was last written, as long as a search started now might still miss that write.
+    private val writtenAt: Cache<UUID, Long> = CacheBuilder.newBuilder()
+            .expireAfterWrite(searchCacheConfiguration.refreshIntervalMillis, TimeUnit.MILLISECONDS)
+            .build()
+    @Volatile
+    private var lastFullInvalidationAt: Long? = null
+    @Volatile
+    private var lastWriteAt: Long? = null
+    private val writes = AtomicLong()
+    private val shapes = ConcurrentHashMap<String, QueryShape>()
+    private val invalidations: ITopic<List<UUID>> = hazelcastInstance.getTopic(SEARCH_CACHE_INVALIDATIONS_TOPIC)
+
+    init {
+        val methodNames = type.methods.map { it.name }.toSet()
+        val unknownMethods = searchCacheConfiguration.readMethods.filter { !methodNames.contains(it) }
+        if (unknownMethods.isNotEmpty()) {
+            logger.warn("Ignoring read methods {} since {} doesn't have them.", unknownMethods, type.simpleName)
+        }
+        readMethods = searchCacheConfiguration.readMethods.filter { methodNames.contains(it) }.toSet()
+
+        invalidations.addMessageListener { message ->
+            if (!message.publishingMember.localMember()) {
+                invalidate(message.messageObject)
+            }
+        }
+    }
+
+    override fun invoke(proxy: Any, method: Method, args: Array<out Any?>?): Any? {
+        return when {
+            method.declaringClass == Any::class.java -> invokeTarget(method, args)
+            readMethods.contains(method.name) -> search(method, args)
+            else -> write(method, args)
+        }
+    }
+
+    private fun search(method: Method, args: Array<out Any?>?): Any? {
+        val key = CacheKey(method, args?.toList() ?: listOf())
+        val shape = shapes.computeIfAbsent(method.name) { QueryShape(it) }
+
+        val cached = results.getIfPresent(key)
+        if (cached != null) {
+            shape.hits.mark()
+            shape.savedNanos.inc(shape.missLatency.snapshot.mean.toLong())
+            return serializationService.toObject(cached)
+        }
+
+        shape.misses.mark()
+        val ids = idsOf(args, includeNested = true)
+        val generationAtStart = generationOf(ids)
+        val startedAt = System.nanoTime()
+        val refreshed = !writtenWithin(ids, startedAt)
+        val context = shape.missLatency.time()
+        val result = try {
+            invokeTarget(method, args)
+        } finally {
+            context.stop()
+        }
+
+        if (result != null && refreshed && System.nanoTime() - startedAt < ttlNanos) {
+            cache(key, ids, generationAtStart, result)
+        }
+
+        return result
+    }
+
+    private fun cache(key: CacheKey, ids: Set<UUID>, generationAtStart: List<Long>, result: Any) {
+        val data = try {
+            serializationService.toData<Data>(result)
+        } catch (ex: HazelcastSerializationException) {
+            logger.debug("Not caching result of {} since it can't be serialized.", key.method.name, ex)
+            return
+        }
+
+        if (ids.isEmpty()) {
+            unscopedKeys.add(key)
+        } else {
+            ids.forEach { id -> keysById.computeIfAbsent(id) { ConcurrentHashMap.newKeySet() }.add(key) }
+        }
+        results.put(key, data)
+
+        // A write that finished while this result was being stored may have missed it, so it is checked again now
+        // that the result can be found by invalidations.
+        if (generationOf(ids) != generationAtStart) {
+            results.invalidate(key)
+        }
+    }
+
+    private fun write(method: Method, args: Array<out Any?>?): Any? {
+        val result = invokeTarget(method, args)
+
+        val ids = idsOf(args, includeNested = false).ifEmpty { idsOf(args, includeNested = true) }
+        invalidate(ids)
+        invalidations.publish(ArrayList(ids))
+
+        return result
+    }
+
+    /**
+     * @param ids The ids whose results are no longer valid, or an empty list to drop every result.
+     */
+    private fun invalidate(ids: Collection<UUID>) {
+        writes.incrementAndGet()
+        val now = System.nanoTime()
+        lastWriteAt = now
+
+        if (ids.isEmpty()) {
+            fullInvalidations.incrementAndGet()
+            lastFullInvalidationAt = now
+            results.invalidateAll()
+        } else {
+            ids.forEach { id ->
+                generations.get(id) { AtomicLong() }.incrementAndGet()
+                writtenAt.put(id, now)
+                keysById.remove(id)?.let { keys -> results.invalidateAll(ArrayList(keys)) }
+            }
+            results.invalidateAll(ArrayList(unscopedKeys))
+        }
+    }
+
+    /**
+     * Searches without ids can be affected by any write, so they are compared against the count of all writes.
+     * Searches with ids only against the writes to those ids and the writes that invalidated everything.
+     */
+    private fun generationOf(ids: Set<UUID>): List<Long> {
+        if (ids.isEmpty()) {
+            return listOf(writes.get())
+        }
+        return listOf(fullInvalidations.get()) + ids.map { id -> generations.get(id) { AtomicLong() }.get() }
+    }
+
+    /**
+     * Like [generationOf], searches without ids are checked against any write and searches with ids only against the
+     * writes to those ids and the writes that invalidated everything.
+     *
+     * @return Whether one of those writes happened less than a refresh interval before [now].
+     */
+    private fun writtenWithin(ids: Set<UUID>, now: Long): Boolean {
+        val lastWrites = if (ids.isEmpty()) {
+            listOf(lastWriteAt)
+        } else {
+            listOf(lastFullInvalidationAt) + ids.map { id -> writtenAt.getIfPresent(id) }
+        }
+        return lastWrites.any { at -> at != null && now - at < refreshIntervalNanos }
+    }
+
+    private fun unindex(key: CacheKey) {
+        unscopedKeys.remove(key)
+        idsOf(key.args.toTypedArray(), includeNested = true).forEach { id ->
+            keysById.computeIfPresent(id) { _, keys ->
+                keys.remove(key)
+                if (keys.isEmpty()) null else keys
+            }
+        }
+    }
+
+    /**
+     * @param includeNested Whether ids inside collections, arrays, optionals and map keys are included, or only ids
+     * passed directly as arguments.
+     */
+    private fun idsOf(args: Array<out Any?>?, includeNested: Boolean): Set<UUID> {
+        val ids = mutableSetOf<UUID>()
+        args?.forEach { arg ->
+            if (arg is UUID) {
+                ids.add(arg)
+            } else if (includeNested) {
+                collectNestedIds(arg, ids)
+            }
+        }
+        return ids
+    }
+
+    private fun collectNestedIds(value: Any?, ids: MutableSet<UUID>) {
+        when (value) {
+            is UUID -> ids.add(value)
+            is Collection<*> -> value.forEach { collectNestedIds(it, ids) }
+            is Map<*, *> -> value.keys.forEach { collectNestedIds(it, ids) }
+            is Array<*> -> value.forEach { collectNestedIds(it, ids) }
+            is Optional<*> -> value.ifPresent { collectNestedIds(it, ids) }
+        }
+    }
+
+    private fun invokeTarget(method: Method, args: Array<out Any?>?): Any? {
+        return try {
+            method.invoke(target, *(args ?: arrayOf()))
+        } catch (ex: InvocationTargetException) {
+            throw ex.targetException
+        }
+    }
+
+    private data class CacheKey(val method: Method, val args: List<Any?>)
+
+    private inner class QueryShape(methodName: String) {
+        val hits: Meter = metricRegistry.meter(MetricRegistry.name(SearchResultCache::class.java, methodName, "hits"))
+        val misses: Meter = metricRegistry.meter(
+                MetricRegistry.name(SearchResultCache::class.java, methodName, "misses")
+        )
+        val missLatency: Timer = metricRegistry.timer(
+                MetricRegistry.name(SearchResultCache::class.java, methodName, "miss-latency")
+        )
+        val savedNanos: Counter = metricRegistry.counter(
+                MetricRegistry.name(SearchResultCache::class.java, methodName, "saved-nanos")
+        )
+
+        init {
+            metricRegistry.register(MetricRegistry.name(SearchResultCache::class.java, methodName, "hit-rate"),
+                    Gauge<Double> {
+                        val total = hits.count + misses.count
+                        if (total == 0L) 0.0 else hits.count.toDouble() / total
+                    })
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.snapshots
+
+import com.hazelcast.internal.serialization.Data
+import com.hazelcast.internal.serialization.SerializationService
+import com.hazelcast.internal.serialization.impl.HeapData
+import java.nio.ByteBuffer
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * The memory mapped snapshot of a map, used to serve its initial load.
+ *
+ * Values are only deserialized when they are requested. Each entry is handed out at most once, since anything loaded
+ * after the initial load may already have changed in Postgres.
+ *
+ * @param complete Whether the snapshot covers every partition, in which case it can also supply the keys of the map.
+ */
+class MapSnapshot(
+        private val serializationService: SerializationService,
+        index: Map<Data, ByteBuffer>,
+        val complete: Boolean
+) {
+    private val entries = ConcurrentHashMap(index)
+
+    val isExhausted: Boolean
+        get() = entries.isEmpty()
+
+    fun <K> keys(): List<K> {
+        return entries.keys.map { serializationService.toObject<K>(it) }
+    }
+
+    /**
+     * @return The values of the requested keys that are in the snapshot. Returned entries are removed from it.
+     */
+    fun <K, V> getAll(keys: Collection<K>): Map<K, V> {
+        return keys.mapNotNull { key ->
+            entries.remove(serializationService.toData(key))?.let { value ->
+                val bytes = ByteArray(value.remaining())
+                value.duplicate().get(bytes)
+                key to serializationService.toObject<V>(HeapData(bytes))
+            }
+        }.toMap()
+    }
+
+    fun clear() {
+        entries.clear()
+    }
+}
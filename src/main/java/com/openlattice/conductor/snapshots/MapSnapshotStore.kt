@@ -0,0 +1,368 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.snapshots
+
+import com.google.common.hash.Hashing
+import com.hazelcast.core.HazelcastInstance
+import com.hazelcast.internal.serialization.Data
+import com.hazelcast.internal.serialization.SerializationService
+import com.hazelcast.internal.serialization.impl.HeapData
+import com.openlattice.hazelcast.pods.SharedStreamSerializersPod
+import org.slf4j.LoggerFactory
+import java.io.BufferedOutputStream
+import java.io.DataOutputStream
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import java.sql.Connection
+import java.sql.SQLException
+import java.sql.Statement
+import java.util.function.Supplier
+import javax.sql.DataSource
+
+private val logger = LoggerFactory.getLogger(MapSnapshotStore::class.java)
+
+private const val MAGIC = 0x4f4c534e
+private const val FORMAT_VERSION = 2
+private const val SUFFIX = ".snapshot"
+
+private val TABLE_NAME = Regex("[a-z_][a-z0-9_]*")
+private const val TRIGGER_NAME = "conductor_snapshot_version"
+private const val SEQUENCE_PREFIX = "conductor_snapshot_version_"
+private const val UNDEFINED_TABLE = "42P01"
+
+/**
+ * Classes whose jars decide how map entries are serialized: conductor itself, the shared stream serializers and
+ * Hazelcast.
+ */
+private val FINGERPRINTED_CLASSES = listOf(
+        MapSnapshotStore::class.java,
+        SharedStreamSerializersPod::class.java,
+        HazelcastInstance::class.java
+)
+
+/**
+ * Reads and writes per partition snapshot files of Hazelcast maps.
+ *
+ * A snapshot file holds the serialized keys and values of one partition, as produced by the stream serializers
+ * registered with Hazelcast, together with the change version of the backing table at the time it was written.
+ *
+ * The change version of a table is a sequence that a statement level trigger on the table advances with `nextval`.
+ * Advancing a sequence takes no row locks, so writers to the table never wait on each other or on writers to other
+ * snapshotted tables. Sequences aren't transactional: a write that is still in flight or gets rolled back has already
+ * changed the version, which at worst discards a snapshot that was still usable.
+ *
+ * The triggers are never installed implicitly. [migrateVersionTriggers] installs them for the configured tables and
+ * removes them, together with their sequences, from tables that are no longer snapshotted or when snapshots are
+ * disabled. It is run by [SnapshotVersionMigrationTask]. Until it has run for a table, the table has no change version
+ * and its map is neither snapshotted nor restored.
+ *
+ * Every file also carries a fingerprint of the builds that serialized it, so snapshots written by a different version
+ * of conductor, its serializers or Hazelcast are ignored instead of being deserialized with incompatible code.
+ *
+ * File layout: magic, format version, fingerprint, change version, partition count, entry count, then for every entry
+ * the length and bytes of the key followed by the length and bytes of the value.
+ *
+ * @param dataSource Supplies the Postgres connection pool. It is only resolved on first use, since the store is
+ * created before the Hazelcast configuration.
+ * @param fingerprint Identifies the serialization format snapshots are written with.
+ */
+class MapSnapshotStore(
+        val snapshotsConfiguration: SnapshotsConfiguration,
+        private val dataSource: Supplier<DataSource>,
+        private val fingerprint: String = buildFingerprint()
+) {
+    private val root: Path = Paths.get(snapshotsConfiguration.directory)
+
+    init {
+        snapshotsConfiguration.maps.values.forEach { settings ->
+            require(TABLE_NAME.matches(settings.table)) { "Invalid snapshot table name ${settings.table}." }
+        }
+    }
+
+    fun isSnapshotted(mapName: String): Boolean {
+        return snapshotsConfiguration.enabled && snapshotsConfiguration.maps.containsKey(mapName)
+    }
+
+    /**
+     * @return The current change version of the table backing the map or null if it can't be determined, including
+     * when the version trigger hasn't been installed on the table yet.
+     */
+    fun getChangeVersion(mapName: String): Long? {
+        val table = snapshotsConfiguration.maps[mapName]?.table ?: return null
+
+        return try {
+            dataSource.get().connection.use { connection ->
+                connection.prepareStatement(changeVersionSql(table)).use { ps ->
+                    ps.executeQuery().use { rs -> if (rs.next()) rs.getLong(1) else null }
+                }
+            }
+        } catch (ex: SQLException) {
+            if (ex.sqlState != UNDEFINED_TABLE) {
+                throw ex
+            }
+            logger.info("Table {} of map {} has no change version yet, skipping its snapshots.", table, mapName)
+            null
+        }
+    }
+
+    /**
+     * Installs the version trigger and sequence on the table of every snapshotted map and removes them from every other
+     * table, each table in its own transaction.
+     *
+     * @return The tables that now have a version trigger.
+     */
+    fun migrateVersionTriggers(): Set<String> {
+        val tables = if (snapshotsConfiguration.enabled) {
+            snapshotsConfiguration.maps.values.map { it.table }.toSet()
+        } else {
+            setOf()
+        }
+
+        dataSource.get().connection.use { connection ->
+            val installed = connection.prepareStatement(INSTALLED_TRIGGERS_SQL).use { ps ->
+                ps.setString(1, TRIGGER_NAME)
+                ps.executeQuery().use { rs ->
+                    val installed = mutableSetOf<String>()
+                    while (rs.next()) {
+                        installed.add(rs.getString(1))
+                    }
+                    installed
+                }
+            }
+
+            transaction(connection) { statement -> statement.execute(BUMP_VERSION_FUNCTION_SQL) }
+            (tables - installed).forEach { table ->
+                transaction(connection) { statement -> installTriggerSql(table).forEach { statement.execute(it) } }
+                logger.info("Installed snapshot version trigger on table {}.", table)
+            }
+            (installed - tables).filter { TABLE_NAME.matches(it) }.forEach { table ->
+                transaction(connection) { statement -> removeTriggerSql(table).forEach { statement.execute(it) } }
+                logger.info("Removed snapshot version trigger from table {}.", table)
+            }
+        }
+
+        return tables
+    }
+
+    fun write(mapName: String, partitionId: Int, partitionCount: Int, changeVersion: Long, entries: Map<Data, Data>) {
+        val directory = Files.createDirectories(root.resolve(mapName))
+        val temp = Files.createTempFile(directory, partitionId.toString(), ".tmp")
+        val fingerprintBytes = fingerprint.toByteArray(StandardCharsets.UTF_8)
+
+        DataOutputStream(BufferedOutputStream(Files.newOutputStream(temp))).use { out ->
+            out.writeInt(MAGIC)
+            out.writeInt(FORMAT_VERSION)
+            out.writeInt(fingerprintBytes.size)
+            out.write(fingerprintBytes)
+            out.writeLong(changeVersion)
+            out.writeInt(partitionCount)
+            out.writeInt(entries.size)
+            entries.forEach { (key, value) ->
+                writeData(out, key)
+                writeData(out, value)
+            }
+        }
+
+        Files.move(
+                temp,
+                directory.resolve("$partitionId$SUFFIX"),
+                StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING
+        )
+    }
+
+    /**
+     * Maps every local snapshot file of a map that matches the current change version of its table and the
+     * fingerprint of this build.
+     *
+     * @return The snapshot or null if there are no usable snapshot files.
+     */
+    fun open(mapName: String, serializationService: SerializationService): MapSnapshot? {
+        val directory = root.resolve(mapName)
+        if (!isSnapshotted(mapName) || !Files.isDirectory(directory)) {
+            return null
+        }
+
+        val changeVersion = try {
+            getChangeVersion(mapName)
+        } catch (ex: Exception) {
+            logger.warn("Unable to read change version of map {}, ignoring its snapshots.", mapName, ex)
+            null
+        } ?: return null
+
+        val index = mutableMapOf<Data, ByteBuffer>()
+        var partitions = 0
+        var partitionCount = 0
+
+        Files.newDirectoryStream(directory, "*$SUFFIX").use { files ->
+            files.forEach { file ->
+                val buffer = FileChannel.open(file, StandardOpenOption.READ).use { channel ->
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                }
+
+                try {
+                    when {
+                        buffer.int != MAGIC || buffer.int != FORMAT_VERSION -> {
+                            logger.warn("Ignoring unreadable snapshot file {}.", file)
+                        }
+                        String(readBytes(buffer), StandardCharsets.UTF_8) != fingerprint -> {
+                            logger.info("Ignoring snapshot file {} written by a different build.", file)
+                        }
+                        buffer.long != changeVersion -> {
+                            logger.info("Ignoring stale snapshot file {}.", file)
+                        }
+                        else -> {
+                            partitionCount = buffer.int
+                            val entries = mutableMapOf<Data, ByteBuffer>()
+                            repeat(buffer.int) {
+                                entries[HeapData(readBytes(buffer))] = readSlice(buffer)
+                            }
+                            index.putAll(entries)
+                            partitions++
+                        }
+                    }
+                } catch (ex: RuntimeException) {
+                    logger.warn("Ignoring truncated or corrupt snapshot file {}.", file, ex)
+                }
+            }
+        }
+
+        if (partitions == 0) {
+            return null
+        }
+
+        logger.info(
+                "Found snapshots of {} of {} partitions with {} entries for map {}.",
+                partitions,
+                partitionCount,
+                index.size,
+                mapName
+        )
+        return MapSnapshot(serializationService, index, partitions == partitionCount)
+    }
+
+    private fun transaction(connection: Connection, statements: (Statement) -> Unit) {
+        val autoCommit = connection.autoCommit
+        connection.autoCommit = false
+        try {
+            connection.createStatement().use(statements)
+            connection.commit()
+        } catch (ex: Exception) {
+            connection.rollback()
+            throw ex
+        } finally {
+            connection.autoCommit = autoCommit
+        }
+    }
+
+    private fun writeData(out: DataOutputStream, data: Data) {
+        val bytes = data.toByteArray()
+        out.writeInt(bytes.size)
+        out.write(bytes)
+    }
+
+    private fun readBytes(buffer: ByteBuffer): ByteArray {
+        return ByteArray(buffer.int).also { buffer.get(it) }
+    }
+
+    private fun readSlice(buffer: ByteBuffer): ByteBuffer {
+        val length = buffer.int
+        val slice = buffer.slice()
+        slice.limit(length)
+        buffer.position(buffer.position() + length)
+        return slice
+    }
+}
+
+/**
+ * @return A hash of the implementation versions of [FINGERPRINTED_CLASSES], or of their jars when the manifest doesn't
+ * have one.
+ */
+fun buildFingerprint(): String {
+    val builds = FINGERPRINTED_CLASSES.joinToString("|") { fingerprintedClass ->
+        val version = fingerprintedClass.`package`?.implementationVersion
+        val location = fingerprintedClass.protectionDomain?.codeSource?.location
+        val jar = location?.let { Paths.get(it.toURI()) }?.takeIf { Files.isRegularFile(it) }
+
+        when {
+            version != null -> "${fingerprintedClass.name}:$version"
+            jar != null -> {
+                "${fingerprintedClass.name}:${jar.fileName}:${Files.size(jar)}:${Files.getLastModifiedTime(jar)}"
+            }
+            else -> fingerprintedClass.name
+        }
+    }
+
+    return Hashing.sha256().hashString(builds, StandardCharsets.UTF_8).toString()
+}
+
+/**
+ * Reads the change version of a table whose name has been validated against [TABLE_NAME]. A sequence that was never
+ * advanced reports its start value, so it is read as 0 until the first write.
+ */
+private fun changeVersionSql(table: String): String {
+    return "SELECT CASE WHEN is_called THEN last_value ELSE 0 END FROM $SEQUENCE_PREFIX$table"
+}
+
+private val INSTALLED_TRIGGERS_SQL = """
+    SELECT pg_class.relname FROM pg_trigger JOIN pg_class ON pg_trigger.tgrelid = pg_class.oid
+    WHERE pg_trigger.tgname = ?
+""".trimIndent()
+
+/**
+ * Advances the sequence passed as the first trigger argument.
+ */
+private val BUMP_VERSION_FUNCTION_SQL = """
+    CREATE OR REPLACE FUNCTION conductor_bump_snapshot_version() RETURNS trigger AS ${'$'}${'$'}
+    BEGIN
+        PERFORM nextval(TG_ARGV[0]::regclass);
+        RETURN NULL;
+    END
+    ${'$'}${'$'} LANGUAGE plpgsql
+""".trimIndent()
+
+/**
+ * Creates the version sequence and trigger of a table. The table name has been validated against [TABLE_NAME].
+ */
+private fun installTriggerSql(table: String): List<String> {
+    return listOf(
+            "CREATE SEQUENCE IF NOT EXISTS $SEQUENCE_PREFIX$table",
+            "DROP TRIGGER IF EXISTS $TRIGGER_NAME ON $table",
+            """
+                CREATE TRIGGER $TRIGGER_NAME
+                AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON $table
+                FOR EACH STATEMENT EXECUTE PROCEDURE conductor_bump_snapshot_version('$SEQUENCE_PREFIX$table')
+            """.trimIndent()
+    )
+}
+
+private fun removeTriggerSql(table: String): List<String> {
+    return listOf(
+            "DROP TRIGGER IF EXISTS $TRIGGER_NAME ON $table",
+            "DROP SEQUENCE IF EXISTS $SEQUENCE_PREFIX$table"
+    )
+}
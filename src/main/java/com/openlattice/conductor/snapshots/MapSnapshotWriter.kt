@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.snapshots
+
+import com.codahale.metrics.MetricRegistry
+import com.codahale.metrics.Timer
+import com.google.common.util.concurrent.ThreadFactoryBuilder
+import com.hazelcast.core.HazelcastInstance
+import com.hazelcast.internal.serialization.Data
+import com.hazelcast.map.impl.MapService
+import com.hazelcast.spi.impl.SerializationServiceSupport
+import org.slf4j.LoggerFactory
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+private val logger = LoggerFactory.getLogger(MapSnapshotWriter::class.java)
+
+/**
+ * Periodically writes snapshots of the partitions this member owns for every map configured in `snapshots.yaml`.
+ *
+ * Every member snapshots its own partitions, so this runs on each member instead of as a cluster wide task. A map is
+ * skipped until something else has created it, so that snapshots never load a lazily loaded or warm up map ahead of
+ * time. It is also skipped while it has entries that haven't been written to Postgres yet, and a snapshot is discarded
+ * if its table changed while it was being taken, so a snapshot always matches the change version it is stamped with.
+ */
+class MapSnapshotWriter(
+        private val hazelcastInstance: HazelcastInstance,
+        private val mapSnapshotStore: MapSnapshotStore,
+        private val metricRegistry: MetricRegistry
+) : AutoCloseable {
+    private val serializationService = (hazelcastInstance as SerializationServiceSupport).serializationService
+    private val ticker = Executors.newSingleThreadScheduledExecutor(
+            ThreadFactoryBuilder().setNameFormat("map-snapshot-writer-%d").setDaemon(true).build()
+    )
+
+    init {
+        val configuration = mapSnapshotStore.snapshotsConfiguration
+        if (configuration.enabled && configuration.maps.isNotEmpty()) {
+            ticker.scheduleWithFixedDelay(
+                    this::snapshotAll,
+                    configuration.periodMillis,
+                    configuration.periodMillis,
+                    TimeUnit.MILLISECONDS
+            )
+        }
+    }
+
+    fun snapshotAll() {
+        val createdMaps = hazelcastInstance.distributedObjects
+                .filter { it.serviceName == MapService.SERVICE_NAME }
+                .map { it.name }
+                .toSet()
+
+        mapSnapshotStore.snapshotsConfiguration.maps.keys.filter { createdMaps.contains(it) }.forEach { mapName ->
+            try {
+                snapshot(mapName)
+            } catch (ex: Exception) {
+                logger.error("Unable to snapshot map {}.", mapName, ex)
+            }
+        }
+    }
+
+    override fun close() {
+        ticker.shutdownNow()
+    }
+
+    private fun snapshot(mapName: String) {
+        val map = hazelcastInstance.getMap<Any, Any>(mapName)
+        if (map.localMapStats.dirtyEntryCount > 0) {
+            logger.info("Skipping snapshot of map {} while it has unwritten entries.", mapName)
+            return
+        }
+
+        val context = timer(mapName).time()
+        val changeVersion = mapSnapshotStore.getChangeVersion(mapName) ?: return
+        val partitionService = hazelcastInstance.partitionService
+        val partitionCount = partitionService.partitions.size
+        val ownedPartitions = partitionService.partitions
+                .filter { it.owner?.localMember() ?: false }
+                .map { it.partitionId }
+
+        val entriesByPartition = map.getAll(map.localKeySet())
+                .entries
+                .groupBy { partitionService.getPartition(it.key).partitionId }
+
+        // Empty partitions are written too, so that a complete set of snapshot files can be recognized on restart.
+        val partitions = ownedPartitions.associateWith { partitionId ->
+            entriesByPartition[partitionId].orEmpty().associate {
+                serializationService.toData<Data>(it.key) to serializationService.toData<Data>(it.value)
+            }
+        }
+
+        if (mapSnapshotStore.getChangeVersion(mapName) != changeVersion) {
+            logger.info("Discarding snapshot of map {} since it changed while being taken.", mapName)
+            context.stop()
+            return
+        }
+
+        partitions.forEach { (partitionId, entries) ->
+            mapSnapshotStore.write(mapName, partitionId, partitionCount, changeVersion, entries)
+        }
+
+        logger.info(
+                "Wrote snapshots of {} partitions of map {} in {} ms.",
+                partitions.size,
+                mapName,
+                TimeUnit.NANOSECONDS.toMillis(context.stop())
+        )
+    }
+
+    private fun timer(mapName: String): Timer {
+        return metricRegistry.timer(MetricRegistry.name(MapSnapshotWriter::class.java, mapName))
+    }
+}
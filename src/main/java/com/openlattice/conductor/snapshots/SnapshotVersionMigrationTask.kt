@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.snapshots
+
+import com.openlattice.tasks.HazelcastInitializationTask
+import com.openlattice.tasks.HazelcastTaskDependencies
+import com.openlattice.tasks.PostConstructInitializerTaskDependencies.PostConstructInitializerTask
+import org.slf4j.LoggerFactory
+
+private val logger = LoggerFactory.getLogger(SnapshotVersionMigrationTask::class.java)
+
+data class SnapshotVersionMigrationDependencies(val mapSnapshotStore: MapSnapshotStore) : HazelcastTaskDependencies
+
+/**
+ * Brings the snapshot version triggers in line with `snapshots.yaml`: installs them on the tables of snapshotted maps
+ * and drops them from every other table. Runs once per cluster start, so maps loaded before it first ran on a table are
+ * loaded from Postgres as usual.
+ */
+class SnapshotVersionMigrationTask : HazelcastInitializationTask<SnapshotVersionMigrationDependencies> {
+    override fun getInitialDelay(): Long {
+        return 0
+    }
+
+    override fun initialize(dependencies: SnapshotVersionMigrationDependencies) {
+        val tables = dependencies.mapSnapshotStore.migrateVersionTriggers()
+        logger.info("Snapshot version triggers are installed on {} tables.", tables.size)
+    }
+
+    override fun after(): Set<Class<out HazelcastInitializationTask<*>>> {
+        return setOf(PostConstructInitializerTask::class.java)
+    }
+
+    override fun getName(): String {
+        return "snapshot_version_migration"
+    }
+
+    override fun getDependenciesClass(): Class<out SnapshotVersionMigrationDependencies> {
+        return SnapshotVersionMigrationDependencies::class.java
+    }
+}
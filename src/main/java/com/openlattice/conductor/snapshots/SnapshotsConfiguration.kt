@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.snapshots
+
+import com.fasterxml.jackson.annotation.JsonProperty
+import com.kryptnostic.rhizome.configuration.Configuration
+import com.kryptnostic.rhizome.configuration.ConfigurationKey
+import com.kryptnostic.rhizome.configuration.SimpleConfigurationKey
+import com.kryptnostic.rhizome.configuration.annotation.ReloadableConfiguration
+
+/**
+ * @param table The Postgres table backing the map. A trigger on it, installed by [SnapshotVersionMigrationTask],
+ * versions every write, which decides whether a snapshot is still current.
+ */
+data class MapSnapshotSettings(
+        @JsonProperty("table") val table: String
+)
+
+/**
+ * @param enabled Whether snapshots are written and used to restore maps on startup.
+ * @param directory Where snapshot files are kept, one sub-directory per map.
+ * @param periodMillis How often each member writes snapshots of the partitions it owns.
+ * @param maps Maps to snapshot, keyed by map name.
+ */
+@ReloadableConfiguration(uri = "snapshots.yaml")
+data class SnapshotsConfiguration(
+        @JsonProperty("enabled") val enabled: Boolean = false,
+        @JsonProperty("directory") val directory: String = "snapshots",
+        @JsonProperty("period-millis") val periodMillis: Long = 900_000,
+        @JsonProperty("maps") val maps: Map<String, MapSnapshotSettings> = mapOf()
+) : Configuration {
+    companion object {
+        @JvmStatic
+        val configKey = SimpleConfigurationKey("snapshots.yaml")
+    }
+
+    override fun getKey(): ConfigurationKey {
+        return configKey
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.pods;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.eventbus.EventBus;
+import com.kryptnostic.rhizome.pods.ConfigurationLoader;
+import com.openlattice.conductor.events.EventBusConfiguration;
+import com.openlattice.conductor.events.SubscriberQueueEventBus;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.inject.Inject;
+
+/**
+ * Provides the event bus shared by the authorization, principal, entity set, collection, assembly and datastore
+ * services. It takes precedence over the default synchronous event bus so that slow subscribers don't add to the
+ * latency of the code posting events.
+ */
+@Configuration
+public class ConductorEventBusPod {
+
+    @Inject
+    private ConfigurationLoader configurationLoader;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Bean
+    public EventBusConfiguration eventBusConfiguration() {
+        return configurationLoader.logAndLoad( "eventbus", EventBusConfiguration.class );
+    }
+
+    @Bean
+    @Primary
+    public EventBus conductorEventBus() {
+        if ( eventBusConfiguration().getAsync() ) {
+            return new SubscriberQueueEventBus( eventBusConfiguration(), metricRegistry );
+        }
+        return new EventBus();
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.pods;
+
+import com.codahale.metrics.MetricRegistry;
+import com.kryptnostic.rhizome.pods.ConfigurationLoader;
+import com.openlattice.conductor.mapstores.MapStoreConfigurer;
+import com.openlattice.conductor.mapstores.MapStoresConfiguration;
+import com.openlattice.conductor.snapshots.MapSnapshotStore;
+import com.openlattice.conductor.snapshots.SnapshotsConfiguration;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Tunes the map stores registered by {@link com.openlattice.hazelcast.pods.MapstoresPod} before the Hazelcast
+ * instance is started. The post processor is static so that it is registered before the Hazelcast configuration is
+ * created. The snapshot store only resolves the data source once a map is loaded, for the same reason.
+ */
+@Configuration
+public class ConductorMapStoresPod {
+
+    @Bean
+    public static MapSnapshotStore mapSnapshotStore(
+            ConfigurationLoader configurationLoader,
+            ObjectProvider<HikariDataSource> hikariDataSource ) {
+        return new MapSnapshotStore(
+                configurationLoader.logAndLoad( "snapshots", SnapshotsConfiguration.class ),
+                hikariDataSource::getObject );
+    }
+
+    @Bean
+    public static MapStoreConfigurer mapStoreConfigurer(
+            ConfigurationLoader configurationLoader,
+            MetricRegistry metricRegistry,
+            MapSnapshotStore mapSnapshotStore ) {
+        return new MapStoreConfigurer(
+                configurationLoader.logAndLoad( "mapstores", MapStoresConfiguration.class ),
+                metricRegistry,
+                mapSnapshotStore );
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.pods;
+
+import com.codahale.metrics.MetricRegistry;
+import com.hazelcast.core.HazelcastInstance;
+import com.kryptnostic.rhizome.pods.ConfigurationLoader;
+import com.openlattice.conductor.metrics.MetricsConfiguration;
+import com.openlattice.conductor.metrics.MetricsHttpServer;
+import com.openlattice.conductor.metrics.MetricsInstrumenter;
+import com.openlattice.conductor.metrics.PrometheusExporter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.inject.Inject;
+
+/**
+ * Instruments the Elasticsearch api and connection pools, and exports all metrics through {@link MetricsHttpServer}.
+ * The configuration and post processor are static so that they are in place before the beans they instrument are
+ * created. Runs of the background tasks aren't timed, since they are scheduled by the shared task scheduler.
+ */
+@Configuration
+public class ConductorMetricsPod {
+
+    @Inject
+    private HazelcastInstance hazelcastInstance;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Bean
+    public static MetricsConfiguration metricsConfiguration( ConfigurationLoader configurationLoader ) {
+        return configurationLoader.logAndLoad( "metrics", MetricsConfiguration.class );
+    }
+
+    @Bean
+    public static MetricsInstrumenter metricsInstrumenter(
+            MetricsConfiguration metricsConfiguration,
+            MetricRegistry metricRegistry ) {
+        return new MetricsInstrumenter( metricsConfiguration, metricRegistry );
+    }
+
+    @Bean
+    public PrometheusExporter prometheusExporter( MetricsConfiguration metricsConfiguration ) {
+        return new PrometheusExporter( metricRegistry, hazelcastInstance, metricsConfiguration );
+    }
+
+    @Bean
+    public MetricsHttpServer metricsHttpServer( MetricsConfiguration metricsConfiguration ) {
+        return new MetricsHttpServer( prometheusExporter( metricsConfiguration ), metricsConfiguration );
+    }
+}
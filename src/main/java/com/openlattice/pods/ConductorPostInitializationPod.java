@@ -25,9 +25,17 @@ import com.google.common.eventbus.EventBus;
 import com.hazelcast.core.HazelcastInstance;
 import com.openlattice.authorization.AuthorizationManager;
 import com.openlattice.authorization.EdmAuthorizationHelper;
+import com.openlattice.conductor.jobs.BulkJobExecutor;
+import com.openlattice.conductor.jobs.JobCheckpointStore;
+import com.openlattice.conductor.reindexing.EntitySetReindexer;
+import com.openlattice.conductor.reindexing.ReindexResumeDependencies;
+import com.openlattice.conductor.reindexing.ReindexResumeInitializationTask;
+import com.openlattice.conductor.reindexing.ReindexingConfiguration;
 import com.openlattice.conductor.rpc.ConductorConfiguration;
 import com.openlattice.conductor.rpc.ConductorElasticsearchApi;
 import com.openlattice.conductor.rpc.MapboxConfiguration;
+import com.openlattice.conductor.search.SearchCacheConfiguration;
+import com.openlattice.conductor.search.SearchResultCache;
 import com.openlattice.data.storage.EntityDatastore;
 import com.openlattice.data.storage.IndexingMetadataManager;
 import com.openlattice.data.storage.partitions.PartitionManager;
@@ -61,6 +69,12 @@ public class ConductorPostInitializationPod {
     @Inject
     private MapboxConfiguration mapboxConfiguration;
 
+    @Inject
+    private ReindexingConfiguration reindexingConfiguration;
+
+    @Inject
+    private SearchCacheConfiguration searchCacheConfiguration;
+
     @Inject
     private HazelcastInstance hazelcastInstance;
 
@@ -97,9 +111,24 @@ public class ConductorPostInitializationPod {
     @Inject
     private EntityDatastore entityDatastore;
 
+    @Inject
+    private BulkJobExecutor bulkJobExecutor;
+
+    @Inject
+    private JobCheckpointStore jobCheckpointStore;
+
     @Bean
     public ConductorElasticsearchApi elasticsearchApi() {
-        return new ConductorElasticsearchImpl( conductorConfiguration.getSearchConfiguration() );
+        ConductorElasticsearchApi elasticsearchApi = new ConductorElasticsearchImpl(
+                conductorConfiguration.getSearchConfiguration() );
+        if ( searchCacheConfiguration.getEnabled() ) {
+            return SearchResultCache.wrap(
+                    elasticsearchApi,
+                    hazelcastInstance,
+                    searchCacheConfiguration,
+                    metricRegistry );
+        }
+        return elasticsearchApi;
     }
 
     @Bean
@@ -135,4 +164,27 @@ public class ConductorPostInitializationPod {
                 indexingMetadataManager
         );
     }
+
+    @Bean
+    public EntitySetReindexer entitySetReindexer() {
+        return new EntitySetReindexer(
+                hazelcastInstance,
+                hikariDataSource,
+                partitionManager,
+                reindexingConfiguration,
+                bulkJobExecutor,
+                jobCheckpointStore,
+                metricRegistry
+        );
+    }
+
+    @Bean
+    public ReindexResumeDependencies reindexResumeDependencies() {
+        return new ReindexResumeDependencies( entitySetReindexer() );
+    }
+
+    @Bean
+    public ReindexResumeInitializationTask reindexResumeInitializationTask() {
+        return new ReindexResumeInitializationTask();
+    }
 }
@@ -29,7 +29,6 @@ import com.geekbeast.rhizome.jobs.HazelcastJobService;
 import com.geekbeast.rhizome.jobs.ResumeJobDependencies;
 import com.geekbeast.rhizome.jobs.ResumeJobsInitializationTask;
 import com.google.common.eventbus.EventBus;
-import com.google.common.util.concurrent.ListeningExecutorService;
 import com.hazelcast.core.HazelcastInstance;
 import com.kryptnostic.rhizome.pods.ConfigurationLoader;
 import com.openlattice.assembler.Assembler;
@@ -54,6 +53,23 @@ import com.openlattice.authorization.initializers.AuthorizationInitializationTas
 import com.openlattice.authorization.mapstores.ResolvedPrincipalTreesMapLoader;
 import com.openlattice.authorization.mapstores.SecurablePrincipalsMapLoader;
 import com.openlattice.collections.CollectionsManager;
+import com.openlattice.conductor.blobs.BlobCacheConfiguration;
+import com.openlattice.conductor.blobs.CachingByteBlobDataManager;
+import com.openlattice.conductor.executors.ConductorExecutors;
+import com.openlattice.conductor.executors.ExecutorName;
+import com.openlattice.conductor.executors.ExecutorsConfiguration;
+import com.openlattice.conductor.jobs.BulkJobExecutor;
+import com.openlattice.conductor.jobs.JobCheckpointStore;
+import com.openlattice.conductor.jobs.JobCheckpointTables;
+import com.openlattice.conductor.mapstores.MapStoreConfigurer;
+import com.openlattice.conductor.mapstores.MapWarmUpDependencies;
+import com.openlattice.conductor.mapstores.MapWarmUpInitializationTask;
+import com.openlattice.conductor.reindexing.ReindexingConfiguration;
+import com.openlattice.conductor.search.SearchCacheConfiguration;
+import com.openlattice.conductor.snapshots.MapSnapshotStore;
+import com.openlattice.conductor.snapshots.MapSnapshotWriter;
+import com.openlattice.conductor.snapshots.SnapshotVersionMigrationDependencies;
+import com.openlattice.conductor.snapshots.SnapshotVersionMigrationTask;
 import com.openlattice.conductor.rpc.ConductorConfiguration;
 import com.openlattice.conductor.rpc.MapboxConfiguration;
 import com.openlattice.data.DataGraphManager;
@@ -147,9 +163,6 @@ public class ConductorServicesPod {
     @Inject
     private EventBus eventBus;
 
-    @Inject
-    private ListeningExecutorService executor;
-
     @Inject
     private AssemblerConfiguration assemblerConfiguration;
 
@@ -171,6 +184,12 @@ public class ConductorServicesPod {
     @Inject
     private ExternalDatabaseConnectionManager externalDbConnMan;
 
+    @Inject
+    private MapStoreConfigurer mapStoreConfigurer;
+
+    @Inject
+    private MapSnapshotStore mapSnapshotStore;
+
     @Bean
     public ObjectMapper defaultObjectMapper() {
         return ObjectMappers.getJsonMapper();
@@ -186,6 +205,26 @@ public class ConductorServicesPod {
         return configurationLoader.load( MapboxConfiguration.class );
     }
 
+    @Bean
+    public ReindexingConfiguration reindexingConfiguration() {
+        return configurationLoader.logAndLoad( "reindexing", ReindexingConfiguration.class );
+    }
+
+    @Bean
+    public ExecutorsConfiguration executorsConfiguration() {
+        return configurationLoader.logAndLoad( "executors", ExecutorsConfiguration.class );
+    }
+
+    @Bean
+    public ConductorExecutors conductorExecutors() {
+        return new ConductorExecutors( executorsConfiguration(), metricRegistry );
+    }
+
+    @Bean
+    public SearchCacheConfiguration searchCacheConfiguration() {
+        return configurationLoader.logAndLoad( "searchcache", SearchCacheConfiguration.class );
+    }
+
     @Bean
     public HazelcastLongIdService longIdService() {
         return new HazelcastLongIdService( hazelcastClientProvider );
@@ -379,7 +418,10 @@ public class ConductorServicesPod {
 
     @Bean
     public Auth0SyncTaskDependencies auth0SyncTaskDependencies() {
-        return new Auth0SyncTaskDependencies( auth0SyncService(), userListingService(), executor );
+        return new Auth0SyncTaskDependencies(
+                auth0SyncService(),
+                userListingService(),
+                conductorExecutors().get( ExecutorName.AUTH_SYNC ) );
     }
 
     @Bean
@@ -427,11 +469,23 @@ public class ConductorServicesPod {
         return new PostgresEntityDataQueryService(
                 hikariDataSource,
                 hikariDataSource,
-                byteBlobDataManager,
+                blobDataManager(),
                 partitionManager()
         );
     }
 
+    @Bean
+    public BlobCacheConfiguration blobCacheConfiguration() {
+        return configurationLoader.logAndLoad( "blobcache", BlobCacheConfiguration.class );
+    }
+
+    private ByteBlobDataManager blobDataManager() {
+        if ( blobCacheConfiguration().getEnabled() ) {
+            return new CachingByteBlobDataManager( byteBlobDataManager, blobCacheConfiguration(), metricRegistry );
+        }
+        return byteBlobDataManager;
+    }
+
     @Bean
     PartitionManager partitionManager() {
         return new PartitionManager( hazelcastInstance, hikariDataSource );
@@ -600,6 +654,21 @@ public class ConductorServicesPod {
         return new ResumeJobDependencies( jobService() );
     }
 
+    @Bean
+    public BulkJobExecutor bulkJobExecutor() {
+        return new BulkJobExecutor( hazelcastInstance, metricRegistry );
+    }
+
+    @Bean
+    public JobCheckpointTables jobCheckpointTables() {
+        return new JobCheckpointTables();
+    }
+
+    @Bean
+    public JobCheckpointStore jobCheckpointStore() {
+        return new JobCheckpointStore( hikariDataSource, defaultObjectMapper() );
+    }
+
     @Bean
     public SubscriptionNotificationTask subscriptionNotificationTask() {
         return new SubscriptionNotificationTask();
@@ -620,7 +689,9 @@ public class ConductorServicesPod {
 
     @Bean
     public ScheduledTaskServiceDependencies scheduledTaskServiceDependencies() {
-        return new ScheduledTaskServiceDependencies( hazelcastInstance, executor );
+        return new ScheduledTaskServiceDependencies(
+                hazelcastInstance,
+                conductorExecutors().get( ExecutorName.SCHEDULING ) );
     }
 
     @Bean
@@ -628,6 +699,31 @@ public class ConductorServicesPod {
         return new ScheduledTaskService();
     }
 
+    @Bean
+    public MapWarmUpDependencies mapWarmUpDependencies() {
+        return new MapWarmUpDependencies( hazelcastInstance, mapStoreConfigurer );
+    }
+
+    @Bean
+    public MapWarmUpInitializationTask mapWarmUpInitializationTask() {
+        return new MapWarmUpInitializationTask();
+    }
+
+    @Bean
+    public MapSnapshotWriter mapSnapshotWriter() {
+        return new MapSnapshotWriter( hazelcastInstance, mapSnapshotStore, metricRegistry );
+    }
+
+    @Bean
+    public SnapshotVersionMigrationDependencies snapshotVersionMigrationDependencies() {
+        return new SnapshotVersionMigrationDependencies( mapSnapshotStore );
+    }
+
+    @Bean
+    public SnapshotVersionMigrationTask snapshotVersionMigrationTask() {
+        return new SnapshotVersionMigrationTask();
+    }
+
     @PostConstruct
     void initPrincipals() {
         Principals.init( principalService(), hazelcastInstance );
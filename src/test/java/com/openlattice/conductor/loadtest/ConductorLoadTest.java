@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.loadtest;
+
+import com.dataloom.mappers.ObjectMappers;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.openlattice.Conductor;
+import com.openlattice.authorization.AclKey;
+import com.openlattice.authorization.AuthorizationManager;
+import com.openlattice.authorization.Permission;
+import com.openlattice.authorization.Principal;
+import com.openlattice.authorization.PrincipalType;
+import com.openlattice.authorization.SecurablePrincipal;
+import com.openlattice.organization.Organization;
+import com.openlattice.organization.roles.Role;
+import com.openlattice.organizations.HazelcastOrganizationService;
+import com.openlattice.organizations.roles.SecurePrincipalsManager;
+import com.openlattice.postgres.PostgresColumn;
+import com.openlattice.postgres.PostgresTable;
+import com.openlattice.search.PersistentSearchNotificationType;
+import com.openlattice.search.requests.SearchConstraints;
+import com.openlattice.subscriptions.SubscriptionContactType;
+import com.openlattice.tasks.HazelcastFixedRateTask;
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * Boots conductor without any external services and measures how its background pipelines hold up under a
+ * synthetic workload.
+ * <p>
+ * Postgres is started in process on the port configured in {@code rhizome.yaml}, with the same credentials, unless
+ * {@code -Dloadtest.embeddedPostgres=false} is passed to run against an existing database. Elasticsearch is stubbed
+ * out by {@link LoadTestStandInsPod}, blobs are kept on local disk and users come from the local user services.
+ * <p>
+ * The run creates organizations through the organization service, with roles, users and entity sets, grants roles to
+ * users and permissions on entity sets to roles, and inserts persistent searches and subscriptions for the users. It
+ * then measures authorization checks and runs every periodic task (Auth0 sync, persistent search messaging,
+ * subscription notifications, assembly refreshes, ...) back to back, so that each task has rows to work through. Run
+ * it with {@code ./gradlew loadTest}; the report is written to {@code build/reports/loadtest/report.txt}.
+ */
+public class ConductorLoadTest {
+    private static final Logger logger = LoggerFactory.getLogger( ConductorLoadTest.class );
+
+    private final LoadTestSettings         settings;
+    private final LoadTestReport           report;
+    private final List<Set<Principal>>     users           = new ArrayList<>();
+    private final List<SecurablePrincipal> securableUsers  = new ArrayList<>();
+    private final List<AclKey>             entitySets      = new ArrayList<>();
+    private final List<UUID>               organizationIds = new ArrayList<>();
+
+    private ApplicationContext context;
+
+    public ConductorLoadTest( LoadTestSettings settings ) {
+        this.settings = settings;
+        this.report = new LoadTestReport( settings );
+    }
+
+    public static void main( String[] args ) throws Exception {
+        LoadTestSettings settings = new LoadTestSettings();
+        EmbeddedPostgres postgres = settings.isEmbeddedPostgres() ? startPostgres( settings.getPostgresPort() ) : null;
+        Conductor conductor = new Conductor();
+
+        try {
+            conductor.intercrop( LoadTestStandInsPod.class );
+            conductor.sprout( "local", "postgres", "medialocal" );
+
+            ConductorLoadTest loadTest = new ConductorLoadTest( settings );
+            loadTest.run( conductor.getContext() );
+            loadTest.report.write( settings.getReport() );
+            logger.info( "Load test finished.{}{}", System.lineSeparator(), loadTest.report );
+        } finally {
+            conductor.plowUnder();
+            if ( postgres != null ) {
+                postgres.close();
+            }
+        }
+        System.exit( 0 );
+    }
+
+    public void run( ApplicationContext context ) {
+        this.context = context;
+        generatePrincipals();
+        insertPersistentSearches();
+        insertSubscriptions();
+        checkAuthorizations();
+        runTasks();
+    }
+
+    private void generatePrincipals() {
+        SecurePrincipalsManager principals = context.getBean( SecurePrincipalsManager.class );
+        AuthorizationManager authorizations = context.getBean( AuthorizationManager.class );
+        HazelcastOrganizationService organizations = context.getBean( HazelcastOrganizationService.class );
+        Principal owner = new Principal( PrincipalType.USER, "loadtest|owner" );
+        principals.createSecurablePrincipalIfNotExists(
+                owner,
+                new SecurablePrincipal( Optional.empty(), owner, "owner", Optional.empty() ) );
+
+        // Each workload is started and finished on its own, so its throughput and GC figures only cover its own work.
+        LoadTestReport.Workload organizationCreation = report.start( "create organizations" );
+        for ( int o = 0; o < settings.getOrganizations(); ++o ) {
+            Organization organization = organization( o );
+            organizationCreation.time( () -> organizations.createOrganization( owner, organization ) );
+            organizationIds.add( organization.getId() );
+        }
+        organizationCreation.finish();
+
+        Map<UUID, List<Role>> rolesByOrganization = new LinkedHashMap<>( settings.getOrganizations() );
+        LoadTestReport.Workload roleCreation = report.start( "create roles" );
+        for ( UUID organizationId : organizationIds ) {
+            List<Role> roles = new ArrayList<>( settings.getRolesPerOrganization() );
+
+            for ( int r = 0; r < settings.getRolesPerOrganization(); ++r ) {
+                Role role = new Role( Optional.empty(),
+                        organizationId,
+                        new Principal( PrincipalType.ROLE, organizationId + "|role-" + r ),
+                        "role-" + r,
+                        Optional.empty() );
+                roleCreation.time( () -> principals.createSecurablePrincipalIfNotExists( owner, role ) );
+                roles.add( role );
+            }
+            rolesByOrganization.put( organizationId, roles );
+        }
+        roleCreation.finish();
+
+        LoadTestReport.Workload userCreation = report.start( "create users and grant roles" );
+        for ( Map.Entry<UUID, List<Role>> organization : rolesByOrganization.entrySet() ) {
+            UUID organizationId = organization.getKey();
+            List<Role> roles = organization.getValue();
+            for ( int u = 0; u < settings.getUsersPerOrganization(); ++u ) {
+                Principal user = new Principal( PrincipalType.USER, "loadtest|" + organizationId + "-" + u );
+                SecurablePrincipal securableUser = new SecurablePrincipal(
+                        Optional.empty(),
+                        user,
+                        user.getId(),
+                        Optional.empty() );
+                Role role = roles.get( u % roles.size() );
+                userCreation.time( () -> {
+                    principals.createSecurablePrincipalIfNotExists( owner, securableUser );
+                    principals.addPrincipalToPrincipal( role.getAclKey(), securableUser.getAclKey() );
+                } );
+                users.add( Set.of( user, role.getPrincipal() ) );
+                securableUsers.add( securableUser );
+            }
+        }
+        userCreation.finish();
+
+        LoadTestReport.Workload permissionGrants = report.start( "grant permissions on entity sets" );
+        for ( List<Role> roles : rolesByOrganization.values() ) {
+            for ( int e = 0; e < settings.getEntitySetsPerOrganization(); ++e ) {
+                AclKey entitySet = new AclKey( UUID.randomUUID() );
+                Principal role = roles.get( e % roles.size() ).getPrincipal();
+                permissionGrants.time( () -> authorizations
+                        .addPermission( entitySet, role, EnumSet.of( Permission.READ ) ) );
+                entitySets.add( entitySet );
+            }
+        }
+        permissionGrants.finish();
+    }
+
+    /**
+     * Creates organizations the way the organizations api does, from their json representation, so that only the
+     * fields a client sends need to be filled in.
+     */
+    private static Organization organization( int index ) {
+        Map<String, Object> organization = new LinkedHashMap<>();
+        organization.put( "id", UUID.randomUUID() );
+        organization.put( "principal", new Principal( PrincipalType.ORGANIZATION, "loadtest|organization-" + index ) );
+        organization.put( "title", "organization " + index );
+        organization.put( "description", "Load test organization " + index );
+        organization.put( "emails", Set.of() );
+        organization.put( "members", Set.of() );
+        organization.put( "roles", Set.of() );
+        organization.put( "apps", Set.of() );
+        return ObjectMappers.getJsonMapper().convertValue( organization, Organization.class );
+    }
+
+    /**
+     * Inserts persistent searches straight into Postgres, since only datastore exposes an api for them. Each user gets
+     * searches over the entity sets of the load test that haven't expired yet, so the messenger task has real work.
+     */
+    private void insertPersistentSearches() {
+        String sql = "INSERT INTO " + PostgresTable.PERSISTENT_SEARCHES.getName() + " ("
+                + PostgresColumn.ID_VALUE.getName() + ", "
+                + PostgresColumn.ACL_KEY.getName() + ", "
+                + PostgresColumn.LAST_READ.getName() + ", "
+                + PostgresColumn.EXPIRATION_DATE.getName() + ", "
+                + PostgresColumn.ALERT_TYPE.getName() + ", "
+                + PostgresColumn.SEARCH_CONSTRAINTS.getName() + ", "
+                + PostgresColumn.ALERT_METADATA.getName() + ", "
+                + PostgresColumn.EMAILS.getName() + ") "
+                + "VALUES (?, ?, now(), now() + interval '1 day', ?, ?::jsonb, '{}'::jsonb, ?)";
+
+        LoadTestReport.Workload inserts = report.start( "insert persistent searches" );
+        insertRows( sql, settings.getPersistentSearches(), inserts, ( connection, ps, i ) -> {
+            SecurablePrincipal user = securableUsers.get( i % securableUsers.size() );
+            String email = "user-" + ( i % securableUsers.size() ) + "@loadtest.local";
+            UUID[] entitySetIds = { entitySets.get( i % entitySets.size() ).get( 0 ) };
+            ps.setObject( 1, UUID.randomUUID() );
+            ps.setArray( 2, connection.createArrayOf( "uuid", user.getAclKey().toArray() ) );
+            ps.setString( 3, PersistentSearchNotificationType.ALPR_ALERT.name() );
+            ps.setString( 4, ObjectMappers.getJsonMapper().writeValueAsString(
+                    SearchConstraints.simpleSearchConstraints( entitySetIds, 0, 100, "*" ) ) );
+            ps.setArray( 5, connection.createArrayOf( "text", new String[] { email } ) );
+        } );
+        inserts.finish();
+    }
+
+    /**
+     * Inserts entity subscriptions straight into Postgres, spread over the users and organizations of the load test,
+     * so the notification task checks them for new neighbors on every run.
+     */
+    private void insertSubscriptions() {
+        String sql = "INSERT INTO " + PostgresTable.SUBSCRIPTIONS.getName() + " ("
+                + PostgresColumn.ID_VALUE.getName() + ", "
+                + PostgresColumn.PRINCIPAL_ID.getName() + ", "
+                + PostgresColumn.LAST_NOTIFIED.getName() + ", "
+                + PostgresColumn.SRC_SELECTS.getName() + ", "
+                + PostgresColumn.DST_SELECTS.getName() + ", "
+                + PostgresColumn.CONTACT_TYPE.getName() + ", "
+                + PostgresColumn.CONTACT_INFO.getName() + ", "
+                + PostgresColumn.ORGANIZATION_ID.getName() + ") "
+                + "VALUES (?, ?, now(), ?, ?, ?, ?, ?)";
+
+        LoadTestReport.Workload inserts = report.start( "insert subscriptions" );
+        insertRows( sql, settings.getSubscriptions(), inserts, ( connection, ps, i ) -> {
+            SecurablePrincipal user = securableUsers.get( i % securableUsers.size() );
+            String email = "user-" + ( i % securableUsers.size() ) + "@loadtest.local";
+            UUID[] entitySetIds = { entitySets.get( i % entitySets.size() ).get( 0 ) };
+            ps.setObject( 1, UUID.randomUUID() );
+            ps.setString( 2, user.getPrincipal().getId() );
+            ps.setArray( 3, connection.createArrayOf( "uuid", entitySetIds ) );
+            ps.setArray( 4, connection.createArrayOf( "uuid", entitySetIds ) );
+            ps.setString( 5, SubscriptionContactType.EMAIL.name() );
+            ps.setString( 6, email );
+            ps.setObject( 7, organizationIds.get( i % organizationIds.size() ) );
+        } );
+        inserts.finish();
+    }
+
+    private void insertRows( String sql, int rows, LoadTestReport.Workload workload, RowBinder binder ) {
+        HikariDataSource dataSource = context.getBean( HikariDataSource.class );
+        try ( Connection connection = dataSource.getConnection();
+                PreparedStatement ps = connection.prepareStatement( sql ) ) {
+            for ( int i = 0; i < rows; ++i ) {
+                binder.bind( connection, ps, i );
+                ps.addBatch();
+            }
+            workload.time( () -> {
+                try {
+                    ps.executeBatch();
+                } catch ( SQLException e ) {
+                    throw new IllegalStateException( "Unable to insert load test rows.", e );
+                }
+            } );
+        } catch ( SQLException | JsonProcessingException e ) {
+            throw new IllegalStateException( "Unable to insert load test rows.", e );
+        }
+    }
+
+    private void checkAuthorizations() {
+        AuthorizationManager authorizations = context.getBean( AuthorizationManager.class );
+        LoadTestReport.Workload checks = report.start( "authorization checks" );
+
+        for ( int i = 0; i < settings.getAuthorizationChecks(); ++i ) {
+            Set<Principal> principals = users.get( ThreadLocalRandom.current().nextInt( users.size() ) );
+            AclKey entitySet = entitySets.get( ThreadLocalRandom.current().nextInt( entitySets.size() ) );
+            checks.time( () -> authorizations
+                    .checkIfHasPermissions( entitySet, principals, EnumSet.of( Permission.READ ) ) );
+        }
+
+        checks.finish();
+    }
+
+    @SuppressWarnings( "rawtypes" )
+    private void runTasks() {
+        Map<String, HazelcastFixedRateTask> tasks = context.getBeansOfType( HazelcastFixedRateTask.class );
+
+        tasks.forEach( ( beanName, task ) -> {
+            LoadTestReport.Workload workload = report.start( "task " + task.getName() );
+            for ( int i = 0; i < settings.getTaskIterations(); ++i ) {
+                workload.time( task::runTask );
+            }
+            workload.finish();
+        } );
+    }
+
+    @FunctionalInterface
+    private interface RowBinder {
+        void bind( Connection connection, PreparedStatement ps, int row ) throws SQLException, JsonProcessingException;
+    }
+
+    private static EmbeddedPostgres startPostgres( int port ) throws Exception {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().setPort( port ).start();
+        try ( Connection connection = postgres.getPostgresDatabase().getConnection();
+                Statement statement = connection.createStatement() ) {
+            statement.execute( "CREATE ROLE oltest WITH SUPERUSER LOGIN PASSWORD 'test'" );
+            statement.execute( "CREATE DATABASE openlattice OWNER oltest" );
+        }
+        return postgres;
+    }
+}
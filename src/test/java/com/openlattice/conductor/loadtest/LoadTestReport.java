@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.loadtest;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.UniformReservoir;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records throughput, latency percentiles, heap usage and garbage collection activity of each load test workload and
+ * renders them as a plain text report. Failed operations are counted and logged, but left out of the throughput and
+ * latency figures.
+ */
+public class LoadTestReport {
+    private static final Logger       logger = LoggerFactory.getLogger( LoadTestReport.class );
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    private final List<String> lines = new ArrayList<>();
+
+    public LoadTestReport( LoadTestSettings settings ) {
+        lines.add( settings.toString() );
+        lines.add( String.format( "%-60s %10s %10s %12s %10s %10s %10s %10s %10s %10s %10s",
+                "workload",
+                "ops",
+                "failed",
+                "ops/s",
+                "p50 ms",
+                "p95 ms",
+                "p99 ms",
+                "max ms",
+                "heap MB",
+                "gc count",
+                "gc ms" ) );
+    }
+
+    public Workload start( String name ) {
+        return new Workload( name );
+    }
+
+    public void write( String report ) throws IOException {
+        Path path = Paths.get( report );
+        if ( path.getParent() != null ) {
+            Files.createDirectories( path.getParent() );
+        }
+        Files.write( path, lines );
+    }
+
+    @Override
+    public String toString() {
+        return String.join( System.lineSeparator(), lines );
+    }
+
+    public class Workload {
+        private final String    name;
+        private final Histogram latencies = new Histogram( new UniformReservoir( 100_000 ) );
+        private final long      startedAt = System.nanoTime();
+        private final long      gcCountBefore;
+        private final long      gcMillisBefore;
+        private       long      failures  = 0;
+
+        private Workload( String name ) {
+            this.name = name;
+            this.gcCountBefore = gcCount();
+            this.gcMillisBefore = gcMillis();
+        }
+
+        public void time( Runnable operation ) {
+            long start = System.nanoTime();
+            try {
+                operation.run();
+            } catch ( RuntimeException e ) {
+                // Only the first failure is logged with its stack trace, so a broken workload doesn't flood the log.
+                if ( failures++ == 0 ) {
+                    logger.error( "Operation of workload {} failed.", name, e );
+                } else {
+                    logger.debug( "Operation of workload {} failed.", name, e );
+                }
+                return;
+            }
+            latencies.update( System.nanoTime() - start );
+        }
+
+        public void finish() {
+            double seconds = ( System.nanoTime() - startedAt ) / 1e9;
+            Snapshot snapshot = latencies.getSnapshot();
+            lines.add( String.format( "%-60s %10d %10d %12.1f %10.3f %10.3f %10.3f %10.3f %10d %10d %10d",
+                    name,
+                    latencies.getCount(),
+                    failures,
+                    latencies.getCount() / seconds,
+                    millis( snapshot.getMedian() ),
+                    millis( snapshot.get95thPercentile() ),
+                    millis( snapshot.get99thPercentile() ),
+                    millis( snapshot.getMax() ),
+                    MEMORY.getHeapMemoryUsage().getUsed() / ( 1024 * 1024 ),
+                    gcCount() - gcCountBefore,
+                    gcMillis() - gcMillisBefore ) );
+            if ( failures > 0 ) {
+                logger.warn( "{} of {} operations of workload {} failed.",
+                        failures,
+                        failures + latencies.getCount(),
+                        name );
+            }
+        }
+
+        private double millis( double nanos ) {
+            return nanos / TimeUnit.MILLISECONDS.toNanos( 1 );
+        }
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong( GarbageCollectorMXBean::getCollectionCount )
+                .sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong( GarbageCollectorMXBean::getCollectionTime )
+                .sum();
+    }
+}
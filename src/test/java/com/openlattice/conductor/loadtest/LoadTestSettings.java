@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.loadtest;
+
+/**
+ * Scale and duration of a load test run, read from {@code loadtest.*} system properties.
+ */
+public class LoadTestSettings {
+    private final int     organizations;
+    private final int     rolesPerOrganization;
+    private final int     usersPerOrganization;
+    private final int     entitySetsPerOrganization;
+    private final int     persistentSearches;
+    private final int     subscriptions;
+    private final int     authorizationChecks;
+    private final int     taskIterations;
+    private final boolean embeddedPostgres;
+    private final int     postgresPort;
+    private final String  report;
+
+    public LoadTestSettings() {
+        this.organizations = Integer.getInteger( "loadtest.organizations", 10 );
+        this.rolesPerOrganization = Integer.getInteger( "loadtest.rolesPerOrganization", 10 );
+        this.usersPerOrganization = Integer.getInteger( "loadtest.usersPerOrganization", 100 );
+        this.entitySetsPerOrganization = Integer.getInteger( "loadtest.entitySetsPerOrganization", 50 );
+        this.persistentSearches = Integer.getInteger( "loadtest.persistentSearches", 1000 );
+        this.subscriptions = Integer.getInteger( "loadtest.subscriptions", 1000 );
+        this.authorizationChecks = Integer.getInteger( "loadtest.authorizationChecks", 100000 );
+        this.taskIterations = Integer.getInteger( "loadtest.taskIterations", 10 );
+        this.embeddedPostgres = Boolean.parseBoolean( System.getProperty( "loadtest.embeddedPostgres", "true" ) );
+        this.postgresPort = Integer.getInteger( "loadtest.postgresPort", 5432 );
+        this.report = System.getProperty( "loadtest.report", "build/reports/loadtest/report.txt" );
+    }
+
+    public int getOrganizations() {
+        return organizations;
+    }
+
+    public int getRolesPerOrganization() {
+        return rolesPerOrganization;
+    }
+
+    public int getUsersPerOrganization() {
+        return usersPerOrganization;
+    }
+
+    public int getEntitySetsPerOrganization() {
+        return entitySetsPerOrganization;
+    }
+
+    public int getPersistentSearches() {
+        return persistentSearches;
+    }
+
+    public int getSubscriptions() {
+        return subscriptions;
+    }
+
+    public int getAuthorizationChecks() {
+        return authorizationChecks;
+    }
+
+    public int getTaskIterations() {
+        return taskIterations;
+    }
+
+    public boolean isEmbeddedPostgres() {
+        return embeddedPostgres;
+    }
+
+    public int getPostgresPort() {
+        return postgresPort;
+    }
+
+    public String getReport() {
+        return report;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadTestSettings{" +
+                "organizations=" + organizations +
+                ", rolesPerOrganization=" + rolesPerOrganization +
+                ", usersPerOrganization=" + usersPerOrganization +
+                ", entitySetsPerOrganization=" + entitySetsPerOrganization +
+                ", persistentSearches=" + persistentSearches +
+                ", subscriptions=" + subscriptions +
+                ", authorizationChecks=" + authorizationChecks +
+                ", taskIterations=" + taskIterations +
+                ", embeddedPostgres=" + embeddedPostgres +
+                ", postgresPort=" + postgresPort +
+                '}';
+    }
+}
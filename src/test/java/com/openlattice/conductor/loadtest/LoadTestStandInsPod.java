@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.loadtest;
+
+import com.openlattice.conductor.rpc.ConductorElasticsearchApi;
+import org.mockito.Mockito;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Replaces the services that need infrastructure which isn't available during a load test run.
+ * <p>
+ * The Elasticsearch api is replaced by a stub that accepts every request and finds nothing. It uses the same bean name
+ * as the one in {@link com.openlattice.pods.ConductorPostInitializationPod}, so the real client is never created.
+ * Blob storage is covered by the {@code medialocal} profile and user listing by the local user services, which are
+ * used whenever {@code auth0.yaml} doesn't set a management api url.
+ */
+@Configuration
+public class LoadTestStandInsPod {
+
+    @Bean
+    @Primary
+    public ConductorElasticsearchApi elasticsearchApi() {
+        return Mockito.mock( ConductorElasticsearchApi.class, invocation -> {
+            Class<?> returnType = invocation.getMethod().getReturnType();
+            if ( returnType == boolean.class || returnType == Boolean.class ) {
+                return true;
+            }
+            return Mockito.RETURNS_DEFAULTS.answer( invocation );
+        } );
+    }
+}
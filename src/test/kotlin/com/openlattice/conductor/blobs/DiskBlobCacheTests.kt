@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.blobs
+
+import org.junit.Assert
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.nio.file.Files
+import java.nio.file.Path
+import kotlin.streams.toList
+
+class DiskBlobCacheTests {
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    @Test
+    fun testSharedContentIsStoredOnce() {
+        val cache = DiskBlobCache(folder.root.path, 1024)
+        val data = ByteArray(100) { it.toByte() }
+
+        cache.put("a", data)
+        cache.put("b", data.copyOf())
+
+        Assert.assertEquals(100L, cache.getSizeInBytes())
+        Assert.assertEquals(1, blobFiles().size)
+        Assert.assertArrayEquals(data, cache.get("a"))
+        Assert.assertArrayEquals(data, cache.get("b"))
+    }
+
+    @Test
+    fun testFileIsDeletedWithItsLastReference() {
+        val cache = DiskBlobCache(folder.root.path, 1024)
+        val data = ByteArray(100) { it.toByte() }
+        cache.put("a", data)
+        cache.put("b", data)
+
+        cache.invalidate("a")
+        Assert.assertNull(cache.get("a"))
+        Assert.assertArrayEquals(data, cache.get("b"))
+        Assert.assertEquals(1, blobFiles().size)
+
+        cache.invalidate("b")
+        Assert.assertNull(cache.get("b"))
+        Assert.assertEquals(0L, cache.getSizeInBytes())
+        Assert.assertEquals(0, blobFiles().size)
+    }
+
+    @Test
+    fun testOverwriteReleasesPreviousContent() {
+        val cache = DiskBlobCache(folder.root.path, 1024)
+        cache.put("a", ByteArray(10) { 1 })
+        cache.put("a", ByteArray(20) { 2 })
+
+        Assert.assertEquals(20L, cache.getSizeInBytes())
+        Assert.assertEquals(1, blobFiles().size)
+        Assert.assertArrayEquals(ByteArray(20) { 2 }, cache.get("a"))
+    }
+
+    @Test
+    fun testLeastRecentlyReadKeysAreEvicted() {
+        val cache = DiskBlobCache(folder.root.path, 100)
+        cache.put("a", ByteArray(40) { 1 })
+        cache.put("b", ByteArray(40) { 2 })
+        Assert.assertNotNull(cache.get("a"))
+
+        cache.put("c", ByteArray(40) { 3 })
+
+        Assert.assertNotNull(cache.get("a"))
+        Assert.assertNull(cache.get("b"))
+        Assert.assertNotNull(cache.get("c"))
+        Assert.assertEquals(80L, cache.getSizeInBytes())
+        Assert.assertEquals(2, blobFiles().size)
+    }
+
+    @Test
+    fun testObjectsLargerThanTheCacheAreSkipped() {
+        val cache = DiskBlobCache(folder.root.path, 10)
+        cache.put("a", ByteArray(11))
+
+        Assert.assertNull(cache.get("a"))
+        Assert.assertEquals(0L, cache.getSizeInBytes())
+    }
+
+    @Test
+    fun testStartupOnlyRemovesCacheFiles() {
+        val foreign = folder.newFile("keep.txt").toPath()
+        DiskBlobCache(folder.root.path, 1024).put("a", ByteArray(10))
+        Assert.assertEquals(1, blobFiles().size)
+
+        DiskBlobCache(folder.root.path, 1024)
+
+        Assert.assertEquals(0, blobFiles().size)
+        Assert.assertTrue(Files.exists(foreign))
+    }
+
+    private fun blobFiles(): List<Path> {
+        return Files.list(folder.root.toPath()).use { files ->
+            files.filter { it.fileName.toString().endsWith(".blob") }.toList()
+        }
+    }
+}
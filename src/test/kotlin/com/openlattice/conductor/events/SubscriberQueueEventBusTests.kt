@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.events
+
+import com.codahale.metrics.MetricRegistry
+import com.google.common.eventbus.Subscribe
+import org.junit.Assert
+import org.junit.Test
+import java.util.*
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+class SubscriberQueueEventBusTests {
+
+    @Test
+    fun testSubscriberReceivesEventsInOrder() {
+        val subscriber = RecordingSubscriber(1000)
+        SubscriberQueueEventBus(EventBusConfiguration(true, 16, OverflowPolicy.BLOCK), MetricRegistry())
+                .use { eventBus ->
+                    eventBus.register(subscriber)
+                    (0 until 1000).forEach { eventBus.post(NumberedEvent(it)) }
+
+                    Assert.assertTrue(subscriber.done.await(10, TimeUnit.SECONDS))
+                    Assert.assertEquals((0 until 1000).toList(), subscriber.received)
+                }
+    }
+
+    @Test
+    fun testSubscriberIsNeverCalledConcurrently() {
+        val subscriber = ConcurrencySubscriber(4000)
+        SubscriberQueueEventBus(EventBusConfiguration(true, 16, OverflowPolicy.CALLER_RUNS), MetricRegistry())
+                .use { eventBus ->
+                    eventBus.register(subscriber)
+                    val posters = Executors.newFixedThreadPool(4)
+                    repeat(4) { posters.execute { repeat(1000) { eventBus.post(NumberedEvent(it)) } } }
+                    posters.shutdown()
+
+                    Assert.assertTrue(subscriber.done.await(10, TimeUnit.SECONDS))
+                    Assert.assertEquals(1, subscriber.maxInFlight.get())
+                }
+    }
+
+    @Test
+    fun testSlowSubscriberDoesNotHoldUpOthers() {
+        val slow = BlockingSubscriber()
+        val fast = RecordingSubscriber(100)
+        SubscriberQueueEventBus(EventBusConfiguration(true, 1000, OverflowPolicy.BLOCK), MetricRegistry())
+                .use { eventBus ->
+                    eventBus.register(slow)
+                    eventBus.register(fast)
+
+                    (0 until 100).forEach { eventBus.post(NumberedEvent(it)) }
+
+                    Assert.assertTrue(fast.done.await(10, TimeUnit.SECONDS))
+                    Assert.assertEquals(2L, slow.done.count)
+                    slow.release.countDown()
+                }
+    }
+
+    @Test
+    fun testEventsAreDroppedWhenQueueIsFull() {
+        val metricRegistry = MetricRegistry()
+        val subscriber = BlockingSubscriber()
+        SubscriberQueueEventBus(EventBusConfiguration(true, 1, OverflowPolicy.DROP), metricRegistry).use { eventBus ->
+            eventBus.register(subscriber)
+
+            eventBus.post(NumberedEvent(0))
+            Assert.assertTrue(subscriber.started.await(10, TimeUnit.SECONDS))
+            eventBus.post(NumberedEvent(1))
+            eventBus.post(NumberedEvent(2))
+            subscriber.release.countDown()
+
+            Assert.assertTrue(subscriber.done.await(10, TimeUnit.SECONDS))
+            Assert.assertEquals(1L, dropped(metricRegistry))
+        }
+    }
+
+    @Test
+    fun testOverflowPolicyIsPerSubscriber() {
+        val metricRegistry = MetricRegistry()
+        val dropping = BlockingSubscriber()
+        val blocking = RecordingSubscriber(3)
+        val configuration = EventBusConfiguration(
+                true,
+                1,
+                OverflowPolicy.BLOCK,
+                mapOf(BlockingSubscriber::class.java.name to OverflowPolicy.DROP)
+        )
+        SubscriberQueueEventBus(configuration, metricRegistry).use { eventBus ->
+            eventBus.register(dropping)
+            eventBus.register(blocking)
+
+            eventBus.post(NumberedEvent(0))
+            Assert.assertTrue(dropping.started.await(10, TimeUnit.SECONDS))
+            eventBus.post(NumberedEvent(1))
+            eventBus.post(NumberedEvent(2))
+
+            Assert.assertTrue(blocking.done.await(10, TimeUnit.SECONDS))
+            Assert.assertEquals(listOf(0, 1, 2), blocking.received)
+            Assert.assertEquals(1L, dropped(metricRegistry))
+            dropping.release.countDown()
+        }
+    }
+
+    @Test
+    fun testReentrantPostsDoNotWaitForFullQueues() {
+        val fanIn = BlockingSubscriber()
+        val fanOut = FanOutSubscriber(100, fanIn.release)
+        SubscriberQueueEventBus(EventBusConfiguration(true, 1, OverflowPolicy.BLOCK), MetricRegistry())
+                .use { eventBus ->
+                    fanOut.eventBus = eventBus
+                    eventBus.register(fanOut)
+                    eventBus.register(fanIn)
+
+                    eventBus.post(FanOutEvent())
+
+                    Assert.assertTrue(fanOut.posted.await(10, TimeUnit.SECONDS))
+                }
+    }
+
+    @Test
+    fun testSubscribersRegisteredWhilePostingReceiveLaterEvents() {
+        SubscriberQueueEventBus(EventBusConfiguration(true, 4096, OverflowPolicy.DROP), MetricRegistry())
+                .use { eventBus ->
+                    val posting = AtomicBoolean(true)
+                    val poster = Executors.newSingleThreadExecutor()
+                    poster.execute {
+                        while (posting.get()) {
+                            eventBus.post(NumberedEvent(-1))
+                        }
+                    }
+
+                    try {
+                        repeat(100) {
+                            val subscriber = AwaitingSubscriber(it)
+                            eventBus.register(subscriber)
+                            eventBus.post(NumberedEvent(it))
+                            Assert.assertTrue(subscriber.received.await(10, TimeUnit.SECONDS))
+                            eventBus.unregister(subscriber)
+                        }
+                    } finally {
+                        posting.set(false)
+                        poster.shutdown()
+                    }
+                }
+    }
+
+    @Test
+    fun testEventsWithoutSubscribersAreIgnored() {
+        val subscriber = RecordingSubscriber(1)
+        SubscriberQueueEventBus(EventBusConfiguration(true, 1, OverflowPolicy.BLOCK), MetricRegistry())
+                .use { eventBus ->
+                    eventBus.register(subscriber)
+                    repeat(10) { eventBus.post(FanOutEvent()) }
+                    eventBus.post(NumberedEvent(0))
+
+                    Assert.assertTrue(subscriber.done.await(10, TimeUnit.SECONDS))
+                    eventBus.unregister(subscriber)
+                }
+    }
+
+    private fun dropped(metricRegistry: MetricRegistry): Long {
+        return metricRegistry.counter(MetricRegistry.name(SubscriberQueueEventBus::class.java, "dropped")).count
+    }
+
+    class NumberedEvent(val number: Int)
+
+    class FanOutEvent
+
+    class RecordingSubscriber(expected: Int) {
+        val received: MutableList<Int> = Collections.synchronizedList(mutableListOf())
+        val done = CountDownLatch(expected)
+
+        @Subscribe
+        fun onEvent(event: NumberedEvent) {
+            received.add(event.number)
+            done.countDown()
+        }
+    }
+
+    class AwaitingSubscriber(private val number: Int) {
+        val received = CountDownLatch(1)
+
+        @Subscribe
+        fun onEvent(event: NumberedEvent) {
+            if (event.number == number) {
+                received.countDown()
+            }
+        }
+    }
+
+    class ConcurrencySubscriber(expected: Int) {
+        private val inFlight = AtomicInteger()
+        val maxInFlight = AtomicInteger()
+        val done = CountDownLatch(expected)
+
+        @Subscribe
+        fun onEvent(event: NumberedEvent) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet()) { a, b -> maxOf(a, b) }
+            Thread.sleep(0, 100_000)
+            inFlight.decrementAndGet()
+            done.countDown()
+        }
+    }
+
+    class BlockingSubscriber {
+        val started = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        val done = CountDownLatch(2)
+
+        @Subscribe
+        fun onEvent(event: NumberedEvent) {
+            started.countDown()
+            release.await()
+            done.countDown()
+        }
+    }
+
+    class FanOutSubscriber(private val events: Int, private val release: CountDownLatch) {
+        lateinit var eventBus: SubscriberQueueEventBus
+        val posted = CountDownLatch(1)
+
+        @Subscribe
+        fun onEvent(event: FanOutEvent) {
+            repeat(events) { eventBus.post(NumberedEvent(it)) }
+            posted.countDown()
+            release.countDown()
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.mapstores
+
+import com.codahale.metrics.MetricRegistry
+import com.hazelcast.core.HazelcastInstance
+import com.hazelcast.internal.serialization.Data
+import com.hazelcast.internal.serialization.InternalSerializationService
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder
+import com.hazelcast.internal.serialization.impl.HeapData
+import com.hazelcast.map.MapStore
+import com.hazelcast.spi.impl.SerializationServiceSupport
+import com.openlattice.conductor.snapshots.MapSnapshotSettings
+import com.openlattice.conductor.snapshots.MapSnapshotStore
+import com.openlattice.conductor.snapshots.SnapshotsConfiguration
+import org.junit.Assert
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.mockito.Mockito
+import java.sql.Connection
+import java.sql.PreparedStatement
+import java.sql.ResultSet
+import java.util.*
+import java.util.function.Supplier
+import javax.sql.DataSource
+
+private const val MAP_NAME = "test_map"
+private const val CHANGE_VERSION = 3L
+
+class InstrumentedMapStoreTests {
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val metricRegistry = MetricRegistry()
+    private val serializationService: InternalSerializationService = DefaultSerializationServiceBuilder().build()
+    private val delegate = FakeMapStore()
+
+    @Test
+    fun testFailedBatchesAreRetriedWithBackoff() {
+        delegate.failures = 2
+        val store = store(WriteBehindSettings(maxRetries = 2, retryBackoffMillis = 20))
+
+        val start = System.currentTimeMillis()
+        store.storeAll(mapOf("a" to "1"))
+
+        Assert.assertTrue(System.currentTimeMillis() - start >= 60)
+        Assert.assertEquals(3, delegate.attempts)
+        Assert.assertEquals(mapOf("a" to "1"), delegate.values)
+        Assert.assertEquals(2, retries())
+    }
+
+    @Test
+    fun testFailureIsRethrownAfterMaxRetries() {
+        delegate.failures = Int.MAX_VALUE
+        val store = store(WriteBehindSettings(maxRetries = 2, retryBackoffMillis = 1))
+
+        try {
+            store.deleteAll(listOf("a"))
+            Assert.fail("The failure should have been handed back.")
+        } catch (ex: IllegalStateException) {
+            Assert.assertEquals(3, delegate.attempts)
+            Assert.assertEquals(2, retries())
+        }
+    }
+
+    @Test
+    fun testWriteThroughMapsAreNotRetried() {
+        delegate.failures = 1
+        val store = store(null)
+
+        try {
+            store.storeAll(mapOf("a" to "1"))
+            Assert.fail("The failure should have been handed back.")
+        } catch (ex: IllegalStateException) {
+            Assert.assertEquals(1, delegate.attempts)
+        }
+    }
+
+    @Test
+    fun testInitialLoadIsServedFromSnapshot() {
+        val store = storeWithSnapshot(mapOf(data("a") to data("1"), data("b") to data("2")))
+
+        Assert.assertEquals(
+                mapOf("a" to "1", "b" to "2", "c" to "from-delegate-c"),
+                store.loadAll(listOf("a", "b", "c"))
+        )
+        Assert.assertEquals(listOf(listOf("c")), delegate.loadedKeys)
+    }
+
+    @Test
+    fun testUnreadableSnapshotFallsBackToDelegate() {
+        val unreadable = HeapData(byteArrayOf(0, 0, 0, 0, 0, 0, 0x7f, 0x7f, 1, 2, 3, 4))
+        val store = storeWithSnapshot(mapOf(data("a") to unreadable))
+
+        Assert.assertEquals(mapOf("a" to "from-delegate-a"), store.loadAll(listOf("a")))
+        Assert.assertEquals(listOf(listOf("a")), delegate.loadedKeys)
+
+        // The snapshot was dropped, so later loads go straight to the delegate.
+        store.loadAll(listOf("b"))
+        Assert.assertEquals(listOf(listOf("a"), listOf("b")), delegate.loadedKeys)
+    }
+
+    private fun store(writeBehindSettings: WriteBehindSettings?): InstrumentedMapStore<String, String> {
+        return InstrumentedMapStore(delegate, MAP_NAME, metricRegistry, writeBehindSettings)
+    }
+
+    private fun storeWithSnapshot(entries: Map<Data, Data>): InstrumentedMapStore<String, String> {
+        val mapSnapshotStore = MapSnapshotStore(
+                SnapshotsConfiguration(
+                        enabled = true,
+                        directory = folder.root.path,
+                        maps = mapOf(MAP_NAME to MapSnapshotSettings("test_table"))
+                ),
+                Supplier { dataSource() },
+                "build-1"
+        )
+        mapSnapshotStore.write(MAP_NAME, 0, 1, CHANGE_VERSION, entries)
+
+        val hazelcastInstance = Mockito.mock(
+                HazelcastInstance::class.java,
+                Mockito.withSettings().extraInterfaces(SerializationServiceSupport::class.java)
+        )
+        Mockito.`when`((hazelcastInstance as SerializationServiceSupport).serializationService)
+                .thenReturn(serializationService)
+
+        val store = InstrumentedMapStore(delegate, MAP_NAME, metricRegistry, null, mapSnapshotStore)
+        store.init(hazelcastInstance, Properties(), MAP_NAME)
+        return store
+    }
+
+    private fun dataSource(): DataSource {
+        val resultSet = Mockito.mock(ResultSet::class.java)
+        Mockito.`when`(resultSet.next()).thenReturn(true)
+        Mockito.`when`(resultSet.getLong(1)).thenReturn(CHANGE_VERSION)
+        val preparedStatement = Mockito.mock(PreparedStatement::class.java)
+        Mockito.`when`(preparedStatement.executeQuery()).thenReturn(resultSet)
+        val connection = Mockito.mock(Connection::class.java)
+        Mockito.`when`(connection.prepareStatement(Mockito.anyString())).thenReturn(preparedStatement)
+        val dataSource = Mockito.mock(DataSource::class.java)
+        Mockito.`when`(dataSource.connection).thenReturn(connection)
+        return dataSource
+    }
+
+    private fun data(value: String): Data {
+        return serializationService.toData(value)
+    }
+
+    private fun retries(): Long {
+        return metricRegistry.counter(MetricRegistry.name(InstrumentedMapLoader::class.java, MAP_NAME, "retries")).count
+    }
+
+    private class FakeMapStore : MapStore<String, String> {
+        val values = mutableMapOf<String, String>()
+        val loadedKeys = mutableListOf<List<String>>()
+        var failures = 0
+        var attempts = 0
+
+        override fun store(key: String, value: String) {
+            storeAll(mapOf(key to value))
+        }
+
+        override fun storeAll(map: Map<String, String>) {
+            attempt()
+            values.putAll(map)
+        }
+
+        override fun delete(key: String) {
+            deleteAll(listOf(key))
+        }
+
+        override fun deleteAll(keys: Collection<String>) {
+            attempt()
+            keys.forEach { values.remove(it) }
+        }
+
+        override fun load(key: String): String? {
+            return loadAll(listOf(key))[key]
+        }
+
+        override fun loadAll(keys: Collection<String>): Map<String, String> {
+            loadedKeys.add(keys.toList())
+            return keys.associateWith { "from-delegate-$it" }
+        }
+
+        override fun loadAllKeys(): Iterable<String> {
+            return values.keys
+        }
+
+        private fun attempt() {
+            attempts++
+            check(attempts > failures) { "Failing attempt $attempts." }
+        }
+    }
+}
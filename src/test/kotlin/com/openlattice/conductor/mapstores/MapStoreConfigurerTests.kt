@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.mapstores
+
+import com.codahale.metrics.MetricRegistry
+import com.hazelcast.config.Config
+import com.hazelcast.config.MapConfig
+import com.hazelcast.config.MapStoreConfig
+import com.hazelcast.map.MapLoader
+import com.hazelcast.map.MapStore
+import com.openlattice.conductor.snapshots.MapSnapshotStore
+import com.openlattice.conductor.snapshots.SnapshotsConfiguration
+import org.junit.Assert
+import org.junit.Test
+import java.util.function.Supplier
+
+class MapStoreConfigurerTests {
+
+    @Test
+    fun testWriteBehindSettingsAreApplied() {
+        val config = configure(
+                MapStoresConfiguration(
+                        writeBehind = mapOf(
+                                "behind" to WriteBehindSettings(
+                                        writeDelaySeconds = 7,
+                                        writeBatchSize = 50,
+                                        writeCoalescing = false
+                                )
+                        )
+                ),
+                "behind"
+        )
+
+        val mapStoreConfig = config.getMapConfig("behind").mapStoreConfig
+        Assert.assertTrue(mapStoreConfig.implementation is InstrumentedMapStore<*, *>)
+        Assert.assertEquals(7, mapStoreConfig.writeDelaySeconds)
+        Assert.assertEquals(50, mapStoreConfig.writeBatchSize)
+        Assert.assertFalse(mapStoreConfig.isWriteCoalescing)
+    }
+
+    @Test
+    fun testWriteThroughOverridesWriteBehind() {
+        val config = configure(
+                MapStoresConfiguration(
+                        writeBehind = mapOf("through" to WriteBehindSettings(writeDelaySeconds = 7)),
+                        writeThrough = setOf("through")
+                ),
+                "through"
+        )
+
+        val mapStoreConfig = config.getMapConfig("through").mapStoreConfig
+        Assert.assertTrue(mapStoreConfig.implementation is InstrumentedMapStore<*, *>)
+        Assert.assertEquals(MapStoreConfig.DEFAULT_WRITE_DELAY_SECONDS, mapStoreConfig.writeDelaySeconds)
+        Assert.assertEquals(MapStoreConfig.DEFAULT_WRITE_BATCH_SIZE, mapStoreConfig.writeBatchSize)
+    }
+
+    @Test
+    fun testLoadingStrategiesMapToInitialLoadModes() {
+        val config = configure(
+                MapStoresConfiguration(
+                        loading = mapOf(
+                                "eager" to MapLoadingSettings(MapLoadingStrategy.EAGER),
+                                "lazy" to MapLoadingSettings(MapLoadingStrategy.LAZY),
+                                "warm_up" to MapLoadingSettings(MapLoadingStrategy.WARM_UP, 1)
+                        ),
+                        loadChunkSize = 250
+                ),
+                "eager",
+                "lazy",
+                "warm_up",
+                "unlisted"
+        )
+
+        Assert.assertEquals(MapStoreConfig.InitialLoadMode.EAGER, initialLoadMode(config, "eager"))
+        Assert.assertEquals(MapStoreConfig.InitialLoadMode.LAZY, initialLoadMode(config, "lazy"))
+        Assert.assertEquals(MapStoreConfig.InitialLoadMode.LAZY, initialLoadMode(config, "warm_up"))
+        Assert.assertEquals(MapStoreConfig.InitialLoadMode.EAGER, initialLoadMode(config, "unlisted"))
+        Assert.assertEquals("250", config.getProperty("hazelcast.map.load.chunk.size"))
+    }
+
+    @Test
+    fun testLoadersAreInstrumentedWithoutWriteSettings() {
+        val config = Config()
+        config.addMapConfig(mapConfig("loader", FakeMapLoader()))
+        configurer(MapStoresConfiguration(writeBehind = mapOf("loader" to WriteBehindSettings())))
+                .postProcessBeforeInitialization(config, "config")
+
+        val mapStoreConfig = config.getMapConfig("loader").mapStoreConfig
+        Assert.assertTrue(mapStoreConfig.implementation is InstrumentedMapLoader<*, *>)
+        Assert.assertFalse(mapStoreConfig.implementation is MapStore<*, *>)
+        Assert.assertEquals(MapStoreConfig.DEFAULT_WRITE_DELAY_SECONDS, mapStoreConfig.writeDelaySeconds)
+    }
+
+    private fun configure(mapStoresConfiguration: MapStoresConfiguration, vararg mapNames: String): Config {
+        val config = Config()
+        // Maps start out eager, so that it is visible which ones were switched.
+        mapNames.forEach { config.addMapConfig(mapConfig(it, FakeMapStore())) }
+        configurer(mapStoresConfiguration).postProcessBeforeInitialization(config, "config")
+        return config
+    }
+
+    private fun configurer(mapStoresConfiguration: MapStoresConfiguration): MapStoreConfigurer {
+        return MapStoreConfigurer(
+                mapStoresConfiguration,
+                MetricRegistry(),
+                MapSnapshotStore(SnapshotsConfiguration(), Supplier { error("Snapshots are disabled.") }, "build-1")
+        )
+    }
+
+    private fun mapConfig(mapName: String, implementation: Any): MapConfig {
+        return MapConfig(mapName).setMapStoreConfig(
+                MapStoreConfig()
+                        .setEnabled(true)
+                        .setImplementation(implementation)
+                        .setInitialLoadMode(MapStoreConfig.InitialLoadMode.EAGER)
+        )
+    }
+
+    private fun initialLoadMode(config: Config, mapName: String): MapStoreConfig.InitialLoadMode {
+        return config.getMapConfig(mapName).mapStoreConfig.initialLoadMode
+    }
+
+    private open class FakeMapLoader : MapLoader<String, String> {
+        override fun load(key: String): String? = null
+
+        override fun loadAll(keys: Collection<String>): Map<String, String> = mapOf()
+
+        override fun loadAllKeys(): Iterable<String> = listOf()
+    }
+
+    private class FakeMapStore : FakeMapLoader(), MapStore<String, String> {
+        override fun store(key: String, value: String) {}
+
+        override fun storeAll(map: Map<String, String>) {}
+
+        override fun delete(key: String) {}
+
+        override fun deleteAll(keys: Collection<String>) {}
+    }
+}
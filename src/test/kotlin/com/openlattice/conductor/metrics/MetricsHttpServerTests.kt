@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.metrics
+
+import com.codahale.metrics.MetricRegistry
+import com.hazelcast.core.HazelcastInstance
+import org.junit.Assert
+import org.junit.Test
+import org.mockito.Mockito
+import java.net.HttpURLConnection
+import java.net.URL
+
+private const val TOKEN = "scraper-token"
+
+class MetricsHttpServerTests {
+    private val metricRegistry = MetricRegistry()
+
+    @Test
+    fun testRequiresToken() {
+        metricRegistry.counter("requests").inc()
+
+        server(MetricsConfiguration(enabled = true, port = 0, token = TOKEN)).use { server ->
+            Assert.assertEquals(401, get(server, null).responseCode)
+            Assert.assertEquals(401, get(server, "Bearer wrong").responseCode)
+
+            val connection = get(server, "Bearer $TOKEN")
+            Assert.assertEquals(200, connection.responseCode)
+            Assert.assertTrue(connection.contentType.startsWith("text/plain; version=0.0.4"))
+            Assert.assertTrue(connection.inputStream.reader().readText().contains("requests 1"))
+        }
+    }
+
+    @Test
+    fun testServesLocalHostWithoutToken() {
+        server(MetricsConfiguration(enabled = true, port = 0)).use { server ->
+            Assert.assertEquals(200, get(server, null).responseCode)
+        }
+    }
+
+    @Test(expected = IllegalStateException::class)
+    fun testRefusesPublicAddressWithoutToken() {
+        server(MetricsConfiguration(enabled = true, host = "0.0.0.0", port = 0))
+    }
+
+    @Test
+    fun testDisabled() {
+        server(MetricsConfiguration()).use { server ->
+            Assert.assertEquals(-1, server.port)
+        }
+    }
+
+    private fun server(metricsConfiguration: MetricsConfiguration): MetricsHttpServer {
+        val hazelcastInstance = Mockito.mock(HazelcastInstance::class.java)
+        return MetricsHttpServer(
+                PrometheusExporter(metricRegistry, hazelcastInstance, metricsConfiguration),
+                metricsConfiguration
+        )
+    }
+
+    private fun get(server: MetricsHttpServer, authorization: String?): HttpURLConnection {
+        val connection = URL("http://127.0.0.1:${server.port}$METRICS_PATH").openConnection() as HttpURLConnection
+        authorization?.let { connection.setRequestProperty("Authorization", it) }
+        return connection
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.metrics
+
+import com.codahale.metrics.Gauge
+import com.codahale.metrics.MetricRegistry
+import com.hazelcast.core.DistributedObject
+import com.hazelcast.core.HazelcastInstance
+import com.hazelcast.map.IMap
+import com.hazelcast.map.LocalMapStats
+import org.junit.Assert
+import org.junit.Test
+import org.mockito.Mockito
+import java.util.concurrent.TimeUnit
+
+class PrometheusExporterTests {
+    private val metricRegistry = MetricRegistry()
+
+    @Test
+    fun testRegistryFormat() {
+        metricRegistry.counter("conductor.jobs-queued").inc(3)
+        metricRegistry.register("conductor.threads", Gauge { 12 })
+        metricRegistry.timer("conductor.reindex").update(2, TimeUnit.SECONDS)
+
+        val lines = exporter(listOf(), 0).scrape().lines()
+
+        assertBlock(lines, "# TYPE conductor_jobs_queued gauge", "conductor_jobs_queued 3")
+        assertBlock(lines, "# TYPE conductor_threads gauge", "conductor_threads 12.0")
+        assertBlock(
+                lines,
+                "# TYPE conductor_reindex_seconds summary",
+                "conductor_reindex_seconds{quantile=\"0.5\"} 2.0",
+                "conductor_reindex_seconds{quantile=\"0.75\"} 2.0",
+                "conductor_reindex_seconds{quantile=\"0.95\"} 2.0",
+                "conductor_reindex_seconds{quantile=\"0.99\"} 2.0",
+                "conductor_reindex_seconds{quantile=\"0.999\"} 2.0",
+                "conductor_reindex_seconds_count 1"
+        )
+    }
+
+    @Test
+    fun testMapStatsFormat() {
+        val stats = Mockito.mock(LocalMapStats::class.java)
+        Mockito.`when`(stats.getOperationCount).thenReturn(5L)
+        Mockito.`when`(stats.totalGetLatency).thenReturn(1500L)
+        Mockito.`when`(stats.ownedEntryCount).thenReturn(42L)
+
+        val map = Mockito.mock(IMap::class.java)
+        Mockito.`when`(map.name).thenReturn("permissions")
+        Mockito.`when`(map.localMapStats).thenReturn(stats)
+
+        val lines = exporter(listOf(map), 0).scrape().lines()
+
+        assertBlock(
+                lines,
+                "# TYPE hazelcast_map_gets_total counter",
+                "hazelcast_map_gets_total{map=\"permissions\"} 5.0"
+        )
+        assertBlock(
+                lines,
+                "# TYPE hazelcast_map_get_latency_seconds_total counter",
+                "hazelcast_map_get_latency_seconds_total{map=\"permissions\"} 1.5"
+        )
+        assertBlock(
+                lines,
+                "# TYPE hazelcast_map_owned_entries gauge",
+                "hazelcast_map_owned_entries{map=\"permissions\"} 42.0"
+        )
+    }
+
+    @Test
+    fun testScrapesAreCached() {
+        val counter = metricRegistry.counter("scrapes")
+        val exporter = exporter(listOf(), 60_000)
+
+        val first = exporter.scrape()
+        counter.inc()
+
+        Assert.assertSame(first, exporter.scrape())
+    }
+
+    private fun exporter(maps: List<DistributedObject>, scrapeCacheMillis: Long): PrometheusExporter {
+        val hazelcastInstance = Mockito.mock(HazelcastInstance::class.java)
+        Mockito.`when`(hazelcastInstance.distributedObjects).thenReturn(maps)
+        return PrometheusExporter(
+                metricRegistry,
+                hazelcastInstance,
+                MetricsConfiguration(scrapeCacheMillis = scrapeCacheMillis)
+        )
+    }
+
+    private fun assertBlock(lines: List<String>, vararg expected: String) {
+        val start = lines.indexOf(expected[0])
+        Assert.assertTrue("Missing ${expected[0]}", start >= 0)
+        Assert.assertEquals(expected.toList(), lines.subList(start, start + expected.size))
+    }
+}
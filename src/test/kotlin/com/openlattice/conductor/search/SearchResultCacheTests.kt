@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.search
+
+import com.codahale.metrics.MetricRegistry
+import com.hazelcast.core.HazelcastInstance
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder
+import com.hazelcast.spi.impl.SerializationServiceSupport
+import com.hazelcast.topic.ITopic
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import org.mockito.Mockito
+import java.util.*
+
+interface TestSearchApi {
+    fun searchEntitySet(entitySetId: UUID, term: String): MutableList<String>
+    fun searchEverything(term: String): MutableList<String>
+    fun searchAndIndex(entitySetId: UUID, value: String): Boolean
+    fun indexEntity(entitySetId: UUID, value: String): Boolean
+    fun clearAllData(): Boolean
+}
+
+class SearchResultCacheTests {
+    private val entitySetA = UUID.randomUUID()
+    private val entitySetB = UUID.randomUUID()
+    private val target = CountingSearchApi()
+    private lateinit var topic: ITopic<List<UUID>>
+    private lateinit var hazelcastInstance: HazelcastInstance
+    private lateinit var api: TestSearchApi
+
+    @Before
+    @Suppress("UNCHECKED_CAST")
+    fun setUp() {
+        topic = Mockito.mock(ITopic::class.java) as ITopic<List<UUID>>
+        hazelcastInstance = Mockito.mock(
+                HazelcastInstance::class.java,
+                Mockito.withSettings().extraInterfaces(SerializationServiceSupport::class.java)
+        )
+        Mockito.`when`(hazelcastInstance.getTopic<List<UUID>>(SEARCH_CACHE_INVALIDATIONS_TOPIC)).thenReturn(topic)
+        Mockito.`when`((hazelcastInstance as SerializationServiceSupport).serializationService)
+                .thenReturn(DefaultSerializationServiceBuilder().build())
+
+        api = wrap(refreshIntervalMillis = 0)
+    }
+
+    @Test
+    fun testCallersGetTheirOwnCopy() {
+        val first = api.searchEntitySet(entitySetA, "term")
+        first.add("modified by caller")
+
+        val second = api.searchEntitySet(entitySetA, "term")
+        Assert.assertEquals(listOf("$entitySetA:term"), second)
+        Assert.assertNotSame(second, api.searchEntitySet(entitySetA, "term"))
+        Assert.assertEquals(1, target.searches)
+    }
+
+    @Test
+    fun testWriteOnlyInvalidatesItsEntitySet() {
+        api.searchEntitySet(entitySetA, "term")
+        api.searchEntitySet(entitySetB, "term")
+        Assert.assertEquals(2, target.searches)
+
+        api.indexEntity(entitySetA, "value")
+        Mockito.verify(topic).publish(listOf(entitySetA))
+
+        api.searchEntitySet(entitySetB, "term")
+        Assert.assertEquals(2, target.searches)
+        api.searchEntitySet(entitySetA, "term")
+        Assert.assertEquals(3, target.searches)
+    }
+
+    @Test
+    fun testSearchesWithoutIdsAreInvalidatedByAnyWrite() {
+        api.searchEverything("term")
+        api.searchEverything("term")
+        Assert.assertEquals(1, target.searches)
+
+        api.indexEntity(entitySetB, "value")
+        api.searchEverything("term")
+        Assert.assertEquals(2, target.searches)
+    }
+
+    @Test
+    fun testWriteWithoutIdsInvalidatesEverything() {
+        api.searchEntitySet(entitySetA, "term")
+        api.searchEntitySet(entitySetB, "term")
+
+        api.clearAllData()
+        Mockito.verify(topic).publish(listOf())
+
+        api.searchEntitySet(entitySetA, "term")
+        api.searchEntitySet(entitySetB, "term")
+        Assert.assertEquals(4, target.searches)
+    }
+
+    @Test
+    fun testUnlistedMethodsAreWrites() {
+        api.searchEntitySet(entitySetA, "term")
+
+        api.searchAndIndex(entitySetA, "value")
+        api.searchAndIndex(entitySetA, "value")
+        Assert.assertEquals(3, target.searches)
+
+        api.searchEntitySet(entitySetA, "term")
+        Assert.assertEquals(4, target.searches)
+    }
+
+    @Test
+    fun testSearchesRightAfterAWriteAreNotCached() {
+        api = wrap(refreshIntervalMillis = 60_000)
+        api.searchEntitySet(entitySetB, "term")
+
+        api.indexEntity(entitySetA, "value")
+        api.searchEntitySet(entitySetA, "term")
+        api.searchEntitySet(entitySetA, "term")
+        Assert.assertEquals(3, target.searches)
+
+        api.searchEntitySet(entitySetB, "term")
+        Assert.assertEquals(3, target.searches)
+    }
+
+    @Test
+    fun testUnscopedSearchesRightAfterAnyWriteAreNotCached() {
+        api = wrap(refreshIntervalMillis = 60_000)
+        api.indexEntity(entitySetB, "value")
+
+        api.searchEverything("term")
+        api.searchEverything("term")
+        Assert.assertEquals(2, target.searches)
+    }
+
+    private fun wrap(refreshIntervalMillis: Long): TestSearchApi {
+        return SearchResultCache.wrap(
+                TestSearchApi::class.java,
+                target,
+                hazelcastInstance,
+                SearchCacheConfiguration(
+                        enabled = true,
+                        refreshIntervalMillis = refreshIntervalMillis,
+                        readMethods = listOf("searchEntitySet", "searchEverything", "searchNothing")
+                ),
+                MetricRegistry()
+        )
+    }
+
+    class CountingSearchApi : TestSearchApi {
+        var searches = 0
+
+        override fun searchEntitySet(entitySetId: UUID, term: String): MutableList<String> {
+            searches++
+            return mutableListOf("$entitySetId:$term")
+        }
+
+        override fun searchEverything(term: String): MutableList<String> {
+            searches++
+            return mutableListOf(term)
+        }
+
+        override fun searchAndIndex(entitySetId: UUID, value: String): Boolean {
+            searches++
+            return true
+        }
+
+        override fun indexEntity(entitySetId: UUID, value: String): Boolean {
+            return true
+        }
+
+        override fun clearAllData(): Boolean {
+            return true
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2020. OpenLattice, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * You can contact the owner of the copyright at support@openlattice.com
+ *
+ */
+
+package com.openlattice.conductor.snapshots
+
+import com.hazelcast.internal.serialization.Data
+import com.hazelcast.internal.serialization.InternalSerializationService
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.mockito.Mockito
+import java.sql.Connection
+import java.sql.PreparedStatement
+import java.sql.ResultSet
+import java.sql.SQLException
+import java.sql.Statement
+import java.util.function.Supplier
+import javax.sql.DataSource
+
+private const val MAP_NAME = "test_map"
+
+class MapSnapshotStoreTests {
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val serializationService: InternalSerializationService = DefaultSerializationServiceBuilder().build()
+    private var changeVersion = 7L
+    private lateinit var dataSource: DataSource
+
+    @Before
+    fun setUp() {
+        val resultSet = Mockito.mock(ResultSet::class.java)
+        Mockito.`when`(resultSet.next()).thenReturn(true)
+        Mockito.`when`(resultSet.getLong(1)).thenAnswer { changeVersion }
+
+        val preparedStatement = Mockito.mock(PreparedStatement::class.java)
+        Mockito.`when`(preparedStatement.executeQuery()).thenReturn(resultSet)
+
+        val connection = Mockito.mock(Connection::class.java)
+        Mockito.`when`(connection.prepareStatement(Mockito.anyString())).thenReturn(preparedStatement)
+        Mockito.`when`(connection.createStatement()).thenReturn(Mockito.mock(Statement::class.java))
+
+        dataSource = Mockito.mock(DataSource::class.java)
+        Mockito.`when`(dataSource.connection).thenReturn(connection)
+    }
+
+    @Test
+    fun testRoundTrip() {
+        val store = store("build-1")
+        store.write(MAP_NAME, 0, 2, changeVersion, entries("a" to "1", "b" to "2"))
+        store.write(MAP_NAME, 1, 2, changeVersion, entries("c" to "3"))
+
+        val snapshot = store.open(MAP_NAME, serializationService)!!
+
+        Assert.assertTrue(snapshot.complete)
+        Assert.assertEquals(setOf("a", "b", "c"), snapshot.keys<String>().toSet())
+        Assert.assertEquals(mapOf("a" to "1", "c" to "3"), snapshot.getAll<String, String>(listOf("a", "c", "d")))
+        Assert.assertEquals(mapOf<String, String>(), snapshot.getAll<String, String>(listOf("a")))
+        Assert.assertFalse(snapshot.isExhausted)
+        Assert.assertEquals(mapOf("b" to "2"), snapshot.getAll<String, String>(listOf("b")))
+        Assert.assertTrue(snapshot.isExhausted)
+    }
+
+    @Test
+    fun testMissingPartitionsMakeSnapshotIncomplete() {
+        val store = store("build-1")
+        store.write(MAP_NAME, 0, 2, changeVersion, entries("a" to "1"))
+
+        Assert.assertFalse(store.open(MAP_NAME, serializationService)!!.complete)
+    }
+
+    @Test
+    fun testStaleSnapshotIsIgnored() {
+        val store = store("build-1")
+        store.write(MAP_NAME, 0, 1, changeVersion, entries("a" to "1"))
+        changeVersion++
+
+        Assert.assertNull(store.open(MAP_NAME, serializationService))
+    }
+
+    @Test
+    fun testSnapshotOfDifferentBuildIsIgnored() {
+        store("build-1").write(MAP_NAME, 0, 1, changeVersion, entries("a" to "1"))
+
+        Assert.assertNull(store("build-2").open(MAP_NAME, serializationService))
+    }
+
+    @Test
+    fun testUnconfiguredMapIsNotSnapshotted() {
+        val store = store("build-1")
+
+        Assert.assertFalse(store.isSnapshotted("other_map"))
+        Assert.assertNull(store.open("other_map", serializationService))
+    }
+
+    @Test
+    fun testMigrationInstallsAndRemovesTriggers() {
+        val installedTables = Mockito.mock(ResultSet::class.java)
+        Mockito.`when`(installedTables.next()).thenReturn(true, false)
+        Mockito.`when`(installedTables.getString(1)).thenReturn("old_table")
+        val installedTablesStatement = Mockito.mock(PreparedStatement::class.java)
+        Mockito.`when`(installedTablesStatement.executeQuery()).thenReturn(installedTables)
+
+        val statement = Mockito.mock(Statement::class.java)
+        val connection = Mockito.mock(Connection::class.java)
+        Mockito.`when`(connection.prepareStatement(Mockito.anyString())).thenReturn(installedTablesStatement)
+        Mockito.`when`(connection.createStatement()).thenReturn(statement)
+        Mockito.`when`(dataSource.connection).thenReturn(connection)
+
+        Assert.assertEquals(setOf("test_table"), store("build-1").migrateVersionTriggers())
+
+        Mockito.verify(statement).execute("CREATE SEQUENCE IF NOT EXISTS conductor_snapshot_version_test_table")
+        Mockito.verify(statement).execute("DROP TRIGGER IF EXISTS conductor_snapshot_version ON old_table")
+        Mockito.verify(statement).execute("DROP SEQUENCE IF EXISTS conductor_snapshot_version_old_table")
+        Mockito.verify(statement, Mockito.never())
+                .execute("DROP SEQUENCE IF EXISTS conductor_snapshot_version_test_table")
+        Mockito.verify(connection, Mockito.times(3)).commit()
+    }
+
+    @Test
+    fun testMissingVersionSequenceMeansNoVersion() {
+        val connection = Mockito.mock(Connection::class.java)
+        Mockito.`when`(connection.prepareStatement(Mockito.anyString()))
+                .thenThrow(SQLException("relation does not exist", "42P01"))
+        Mockito.`when`(dataSource.connection).thenReturn(connection)
+
+        Assert.assertNull(store("build-1").getChangeVersion(MAP_NAME))
+    }
+
+    private fun store(fingerprint: String): MapSnapshotStore {
+        return MapSnapshotStore(
+                SnapshotsConfiguration(
+                        enabled = true,
+                        directory = folder.root.path,
+                        maps = mapOf(MAP_NAME to MapSnapshotSettings("test_table"))
+                ),
+                Supplier { dataSource },
+                fingerprint
+        )
+    }
+
+    private fun entries(vararg entries: Pair<String, String>): Map<Data, Data> {
+        return entries.associate {
+            serializationService.toData<Data>(it.first) to serializationService.toData<Data>(it.second)
+        }
+    }
+}